@@ -0,0 +1,71 @@
+package com.example.benchmark;
+
+import com.example.core.dedup.Deduplicator;
+import com.example.core.model.UserEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Дедупликация по нормализованному ключу: вход с повторами в разном регистре.
+ *
+ * legacyDedupThenFilter — прежняя схема (ключ-строка на каждую запись, копия в LinkedHashSet,
+ * второй stream-проход для удалённых аккаунтов) для сравнения аллокаций: запускать с {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeduplicatorBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int entries;
+
+    private Set<UserEntry> input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = new LinkedHashSet<>();
+        int distinct = Math.max(1, entries / 4);
+        for (int i = 0; i < entries; i++) {
+            int u = i % distinct;
+            // те же пользователи в другом регистре — разные записи для Set, но один ключ для Deduplicator
+            String username = (i / distinct) % 2 == 0 ? "user" + u : "User" + u;
+            String name = i % 100 == 0 ? "Deleted Account" : "User " + i;
+            input.add(new UserEntry(username, name, "https://t.me/" + username));
+        }
+    }
+
+    @Benchmark
+    public Set<UserEntry> dedup() {
+        return Deduplicator.dedup(input);
+    }
+
+    @Benchmark
+    public Set<UserEntry> dedupWithoutDeleted() {
+        return Deduplicator.dedupWithoutDeleted(input);
+    }
+
+    @Benchmark
+    public Set<UserEntry> legacyDedupThenFilter() {
+        Map<String, UserEntry> map = new LinkedHashMap<>();
+        for (UserEntry u : input) {
+            if (u.username() == null || u.username().isBlank()) continue;
+            map.putIfAbsent("@" + u.username().trim().toLowerCase(), u);
+        }
+        Set<UserEntry> deduped = map.values().stream().collect(Collectors.toCollection(LinkedHashSet::new));
+        return deduped.stream()
+                .filter(u -> {
+                    String name = u.displayName() == null ? "" : u.displayName().trim().toLowerCase();
+                    return !name.equals("deleted account");
+                })
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.benchmark;
+
+import com.example.core.model.ResultBundle;
+import com.example.export.ExcelExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel-экспорт: XSSF с autoSizeColumn против потокового SXSSF.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ExcelExporterBenchmark {
+
+    @Param({"1000", "50000"})
+    public int rows;
+
+    private ResultBundle result;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        result = SyntheticExportGenerator.result(rows, rows, rows / 100);
+        dir = Files.createTempDirectory("bench-xlsx-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir.resolve("participants.xlsx"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Path inMemory() throws IOException {
+        return ExcelExporter.export(result, dir);
+    }
+
+    @Benchmark
+    public Path streaming() throws IOException {
+        return ExcelExporter.exportStreaming(result, dir);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.benchmark;
+
+import com.example.core.ChatExportService;
+import com.example.core.model.ResultBundle;
+import com.example.processing.ExecutionMode;
+import com.example.processing.ProcessingExecutors;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Модели потоков на пути "скачать -> разобрать из потока" (PIPELINED, как Bot.downloadAndParse):
+ * - CACHED — прежняя модель: весь файл на newCachedThreadPool;
+ * - PLATFORM, VIRTUAL — настоящий {@link ProcessingExecutors} в соответствующем режиме, файл идёт на ioExecutor.
+ *
+ * Скачивание заглушено: ожидание downloadMillis (сеть, Bot API), затем байты синтетического экспорта.
+ * Разбор — настоящий {@link ChatExportService#processJsonStream}. Результат — файлов в секунду;
+ * память — профайлер gc из jmh.args по умолчанию.
+ * {@code -Djmh.args="ExecutionModeBenchmark -p downloadMillis=200 -prof gc"}. VIRTUAL — только на Java 21+:
+ * на старой JVM ProcessingExecutors откатился бы в PLATFORM, поэтому такой прогон падает при подготовке.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ExecutionModeBenchmark {
+
+    private static final int FILES = 500;
+
+    public enum Model { CACHED, PLATFORM, VIRTUAL }
+
+    @Param({"CACHED", "PLATFORM", "VIRTUAL"})
+    public Model model;
+
+    @Param({"50"})
+    public int downloadMillis;
+
+    @Param({"2000"})
+    public int messages;
+
+    private byte[] export;
+    private ProcessingExecutors executors;
+    private ExecutorService io;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("bench-export-", ".json");
+        try {
+            SyntheticExportGenerator.generate(file, messages, Math.max(10, messages / 20), 0.3,
+                    SyntheticExportGenerator.TextForm.STRING, 42);
+            export = Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        if (model == Model.CACHED) {
+            io = Executors.newCachedThreadPool();
+            return;
+        }
+        // размеры пулов — значения по умолчанию из application.properties
+        executors = new ProcessingExecutors(model.name(), 4, 16, 8);
+        if (executors.mode() != ExecutionMode.valueOf(model.name())) {
+            executors.shutdown();
+            throw new IllegalStateException(model + " is not available on Java " + System.getProperty("java.version"));
+        }
+        io = executors.ioExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executors != null) {
+            executors.shutdown();
+        } else {
+            io.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILES)
+    public int downloadAndParse() {
+        List<CompletableFuture<ResultBundle>> futures = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            futures.add(CompletableFuture.supplyAsync(this::downloadAndParseOne, io));
+        }
+        int participants = 0;
+        for (CompletableFuture<ResultBundle> f : futures) {
+            participants += f.join().participants().size();
+        }
+        return participants;
+    }
+
+    private ResultBundle downloadAndParseOne() {
+        try {
+            return ChatExportService.processJsonStream(download(), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private InputStream download() {
+        try {
+            Thread.sleep(downloadMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ByteArrayInputStream(export);
+    }
+}
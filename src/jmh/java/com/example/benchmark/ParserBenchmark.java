@@ -0,0 +1,74 @@
+package com.example.benchmark;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.parse.TelegramJsonExportParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Парсинг синтетического экспорта: дерево (JsonNode) против потокового режима
+ * и потокового режима поверх mmap ({@code parseMapped}), а также параллельный разбор по кускам
+ * ({@code parseParallel}, свой ForkJoinPool по числу ядер, как processing.chunk-workers=0).
+ *
+ * Экспорт на несколько сотен МБ — порядка 2–3 млн сообщений:
+ * {@code -Djmh.args="ParserBenchmark.(streaming|mapped) -p messages=2500000 -p textForm=STRING -prof gc"}.
+ * Файл после генерации лежит в page cache, так что сравнивается именно путь чтения, а не диск.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+
+    @Param({"10000", "100000"})
+    public int messages;
+
+    @Param({"0.3"})
+    public double mentionDensity;
+
+    @Param({"STRING", "ARRAY"})
+    public SyntheticExportGenerator.TextForm textForm;
+
+    private Path file;
+    private ForkJoinPool chunkPool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("bench-export-", ".json");
+        SyntheticExportGenerator.generate(file, messages, Math.max(10, messages / 20), mentionDensity, textForm, 42);
+        chunkPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        chunkPool.shutdown();
+    }
+
+    @Benchmark
+    public ResultBundle tree() throws IOException {
+        return TelegramJsonExportParser.parse(file);
+    }
+
+    @Benchmark
+    public ResultBundle streaming() throws IOException {
+        return TelegramJsonExportParser.parseStreaming(file);
+    }
+
+    @Benchmark
+    public ResultBundle mapped() throws IOException {
+        return TelegramJsonExportParser.parseMapped(file);
+    }
+
+    @Benchmark
+    public ResultBundle parallel() throws IOException {
+        return TelegramJsonExportParser.parseParallel(file, chunkPool);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.benchmark;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Генератор синтетических экспортов Telegram Desktop для бенчмарков.
+ *
+ * Параметры: число сообщений, число разных авторов, доля сообщений с упоминанием (mentionDensity)
+ * и форма поля "text" — строка или массив фрагментов (как у сообщений с форматированием).
+ */
+public final class SyntheticExportGenerator {
+    private SyntheticExportGenerator() {}
+
+    public enum TextForm { STRING, ARRAY }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public static Path generate(Path file, int messages, int distinctUsers, double mentionDensity,
+                                TextForm textForm, long seed) throws IOException {
+        Random rnd = new Random(seed);
+        try (OutputStream os = Files.newOutputStream(file);
+             JsonGenerator g = JSON.createGenerator(os).useDefaultPrettyPrinter()) {
+            g.writeStartObject();
+            g.writeStringField("name", "Synthetic chat");
+            g.writeStringField("type", "private_supergroup");
+            g.writeNumberField("id", 1000L + seed);
+            g.writeArrayFieldStart("messages");
+            for (int i = 0; i < messages; i++) {
+                writeMessage(g, rnd, i, distinctUsers, mentionDensity, textForm);
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        return file;
+    }
+
+    private static void writeMessage(JsonGenerator g, Random rnd, int id, int distinctUsers,
+                                     double mentionDensity, TextForm textForm) throws IOException {
+        int author = rnd.nextInt(distinctUsers);
+        boolean withMention = rnd.nextDouble() < mentionDensity;
+        int mentioned = rnd.nextInt(distinctUsers);
+
+        g.writeStartObject();
+        g.writeNumberField("id", id);
+        g.writeStringField("type", "message");
+        g.writeStringField("date", "2025-01-01T00:00:00");
+        g.writeStringField("date_unixtime", "1735689600");
+        // в реальных экспортах часть авторов указана с @username
+        g.writeStringField("from", author % 3 == 0 ? "User " + author + " @user" + author : "User " + author);
+        g.writeStringField("from_id", "user" + (100_000 + author));
+        if (rnd.nextInt(10) == 0) {
+            // шум, который парсер должен пропускать
+            g.writeArrayFieldStart("reactions");
+            g.writeStartObject();
+            g.writeStringField("type", "emoji");
+            g.writeNumberField("count", rnd.nextInt(20));
+            g.writeStringField("emoji", "👍");
+            g.writeEndObject();
+            g.writeEndArray();
+        }
+
+        if (textForm == TextForm.STRING) {
+            StringBuilder text = new StringBuilder("Сообщение номер ").append(id).append(" с обычным текстом");
+            if (withMention) {
+                text.append(", привет @user").append(mentioned);
+            }
+            if (id % 50 == 0) {
+                text.append(" https://t.me/channel").append(id % 500);
+            }
+            g.writeStringField("text", text.toString());
+            g.writeArrayFieldStart("text_entities");
+            g.writeStartObject();
+            g.writeStringField("type", "plain");
+            g.writeStringField("text", text.toString());
+            g.writeEndObject();
+            g.writeEndArray();
+        } else {
+            g.writeArrayFieldStart("text");
+            g.writeString("Сообщение номер " + id + " ");
+            if (withMention) {
+                g.writeStartObject();
+                g.writeStringField("type", "mention");
+                g.writeStringField("text", "@user" + mentioned);
+                g.writeEndObject();
+            }
+            if (id % 50 == 0) {
+                g.writeString(" смотри ");
+                g.writeStartObject();
+                g.writeStringField("type", "text_link");
+                g.writeStringField("text", "канал");
+                g.writeStringField("href", "https://t.me/channel" + (id % 500));
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.writeArrayFieldStart("text_entities");
+            if (withMention) {
+                g.writeStartObject();
+                g.writeStringField("type", "mention");
+                g.writeStringField("text", "@user" + mentioned);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+        g.writeEndObject();
+    }
+
+    /**
+     * Готовый результат для бенчмарков форматтера/экспорта (без парсинга).
+     */
+    public static ResultBundle result(int participants, int mentions, int channels) {
+        Set<UserEntry> p = new LinkedHashSet<>();
+        for (int i = 0; i < participants; i++) {
+            p.add(new UserEntry(i % 3 == 0 ? "user" + i : null, "Пользователь User " + i, i % 3 == 0 ? "https://t.me/user" + i : null));
+        }
+        Set<UserEntry> m = new LinkedHashSet<>();
+        for (int i = 0; i < mentions; i++) {
+            m.add(new UserEntry("mention" + i, null, "https://t.me/mention" + i));
+        }
+        Set<UserEntry> c = new LinkedHashSet<>();
+        for (int i = 0; i < channels; i++) {
+            c.add(new UserEntry("channel" + i, null, "https://t.me/channel" + i));
+        }
+        return new ResultBundle(p, m, c);
+    }
+}
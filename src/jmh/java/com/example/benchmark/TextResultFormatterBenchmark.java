@@ -0,0 +1,61 @@
+package com.example.benchmark;
+
+import com.example.core.model.ResultBundle;
+import com.example.export.TextResultFormatter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Текстовый результат: сортировка и сборка ответа.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TextResultFormatterBenchmark {
+
+    @Param({"50"})
+    public int participants;
+
+    @Param({"500", "50000"})
+    public int mentions;
+
+    private ResultBundle result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        result = SyntheticExportGenerator.result(participants, mentions, 10);
+    }
+
+    @Benchmark
+    public String format() {
+        return TextResultFormatter.format(List.of("result.json"), result);
+    }
+
+    /**
+     * Только первая страница: упоминания сортируются частично, по мере чтения.
+     */
+    @Benchmark
+    public String firstPage() {
+        return TextResultFormatter.pages(TextResultFormatter.lines(List.of("result.json"), result),
+                TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS).next();
+    }
+
+    /**
+     * Весь отчёт страницами по 4096 символов (как отправляет бот).
+     */
+    @Benchmark
+    public void pages(Blackhole bh) {
+        Iterator<String> pages = TextResultFormatter.pages(TextResultFormatter.lines(List.of("result.json"), result),
+                TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS);
+        while (pages.hasNext()) {
+            bh.consume(pages.next());
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package com.example;
 
 import com.example.core.ChatExportService;
+import com.example.core.ResultAccumulator;
+import com.example.core.cache.ResultCache;
 import com.example.core.model.ResultBundle;
+import com.example.core.parse.ParseMode;
 import com.example.enums.Constants;
 import com.example.enums.UserState;
 import com.example.export.ExcelExporter;
+import com.example.export.ExcelSpillWriter;
 import com.example.export.TextResultFormatter;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.PipelineMetrics.Stage;
+import com.example.processing.OutboundDispatcher;
+import com.example.processing.ProcessingExecutors;
+import com.example.processing.ProcessingPlan;
+import com.example.processing.ProcessingPlanner;
+import com.example.processing.ProcessingScheduler;
 import com.example.session.Session;
 import com.example.session.SessionStore;
 import com.example.ui.Keyboards;
@@ -26,11 +37,17 @@ import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component("bot")
@@ -38,16 +55,37 @@ public class Bot extends TelegramLongPollingBot {
 
     private final String botUsername;
     private final SessionStore sessionStore;
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ProcessingScheduler scheduler;
+    private final ProcessingExecutors executors;
+    private final ResultCache resultCache;
+    private final OutboundDispatcher outbound;
+    private final ProcessingPlanner planner;
+    private final PipelineMetrics metrics;
+    // PIPELINED: дополнительно сохранять скачиваемый файл во временную папку
+    private final boolean keepDownloads;
 
     public Bot(@Value("${telegram-bot.token}") String botToken,
                @Value("${telegram-bot.name}") String botUsername,
-               SessionStore sessionStore) {
+               @Value("${processing.keep-downloads:false}") boolean keepDownloads,
+               SessionStore sessionStore,
+               ProcessingScheduler scheduler,
+               ProcessingExecutors executors,
+               ResultCache resultCache,
+               OutboundDispatcher outbound,
+               ProcessingPlanner planner,
+               PipelineMetrics metrics) {
         // Since telegrambots 6.x, the no-arg TelegramLongPollingBot() constructor is deprecated.
         // Use the token constructor instead.
         super(botToken);
         this.botUsername = botUsername;
         this.sessionStore = sessionStore;
+        this.scheduler = scheduler;
+        this.executors = executors;
+        this.resultCache = resultCache;
+        this.outbound = outbound;
+        this.planner = planner;
+        this.metrics = metrics;
+        this.keepDownloads = keepDownloads;
     }
 
     @Override
@@ -57,6 +95,21 @@ public class Bot extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
+        // polling-поток только ставит апдейт в полосу его чата: апдейты чата — по порядку, разные чаты — параллельно
+        executors.updateLanes().execute(chatIdOf(update), () -> handleUpdate(update));
+    }
+
+    private static long chatIdOf(Update update) {
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        return 0;
+    }
+
+    private void handleUpdate(Update update) {
         try {
             if (update.hasCallbackQuery()) {
                 handleCallback(update.getCallbackQuery());
@@ -80,25 +133,25 @@ public class Bot extends TelegramLongPollingBot {
                     handleDocument(msg);
                     return;
                 }
-                // любое другое сообщение — игнорируем, но обновляем TTL
-                touchOrExpire(msg.getChatId());
+                // любое другое сообщение — игнорируем, но обновляем TTL (если сессия есть; новую не создаём)
+                touchIfPresent(msg.getChatId());
             }
         } catch (Exception e) {
             log.error("Unhandled update error", e);
         }
     }
 
-    private void handleStart(long chatId) throws TelegramApiException {
+    private void handleStart(long chatId) {
         sessionStore.reset(chatId);
         Session s = sessionStore.getOrCreate(chatId);
         s.setState(UserState.WAITING_FILES);
 
         SendMessage m = new SendMessage(String.valueOf(chatId), UiTexts.startText());
         m.setReplyMarkup(Keyboards.startMenu());
-        execute(m);
+        reply(chatId, m);
     }
 
-    private void handleStop(long chatId) throws TelegramApiException {
+    private void handleStop(long chatId) {
         // /stop — это "остановка" сценария: удаляем сессию и показываем стартовое меню.
         sessionStore.reset(chatId);
 
@@ -108,12 +161,12 @@ public class Bot extends TelegramLongPollingBot {
                 "Чтобы начать заново — нажмите /start."
         );
         m.setReplyMarkup(Keyboards.startMenu());
-        execute(m);
+        reply(chatId, m);
     }
 
 
 
-    private void handleDocument(Message message) throws TelegramApiException {
+    private void handleDocument(Message message) {
         long chatId = message.getChatId();
         Session s = touchOrExpire(chatId);
         if (s == null) return;
@@ -135,19 +188,20 @@ public class Bot extends TelegramLongPollingBot {
             SendMessage m = new SendMessage(String.valueOf(chatId),
                     "Можно загрузить не более 10 файлов за одну обработку.  \nНачните новую сессию.");
             m.setReplyMarkup(Keyboards.processOtherMenu());
-            execute(m);
+            reply(chatId, m);
             return;
         }
 
-        s.getFiles().add(new Session.FileMeta(doc.getFileId(), fileName, doc.getFileSize() == null ? 0L : doc.getFileSize()));
+        s.getFiles().add(new Session.FileMeta(doc.getFileId(), doc.getFileUniqueId(), fileName,
+                doc.getFileSize() == null ? 0L : doc.getFileSize()));
         s.setState(UserState.READY_TO_PROCESS);
 
         SendMessage m = new SendMessage(String.valueOf(chatId),
                 "Файл принят.  \n" +
                 "Сейчас загружено: " + s.getFiles().size() + " файл(ов).  \n\n" +
                 "Можете отправить еще файлы или нажмите Начать обработку.");
-        m.setReplyMarkup(Keyboards.readyMenu());
-        execute(m);
+        m.setReplyMarkup(Keyboards.readyMenu(s.getFiles().size() > 1));
+        reply(chatId, m);
     }
 
     private void handleCallback(CallbackQuery cq) throws TelegramApiException {
@@ -157,10 +211,13 @@ public class Bot extends TelegramLongPollingBot {
         // UX: быстро убираем "часики" у кнопки
         AnswerCallbackQuery ack = new AnswerCallbackQuery();
         ack.setCallbackQueryId(cq.getId());
-        execute(ack);
+        metrics.time(Stage.SEND, () -> execute(ack));
 
-        Session s = touchOrExpire(chatId);
-        if (s == null && !Constants.CB_RESTART.equals(data)) {
+        // Сессию по кнопке не создаём: FAQ/помощь работают и без неё, а "Начать обработку" без сессии —
+        // значит, её уже сняла фоновая очистка.
+        boolean hadSession = sessionStore.find(chatId) != null;
+        Session s = touchIfPresent(chatId);
+        if (hadSession && s == null && !Constants.CB_RESTART.equals(data)) {
             return;
         }
 
@@ -169,90 +226,182 @@ public class Bot extends TelegramLongPollingBot {
             case Constants.CB_FAQ -> sendText(chatId, UiTexts.faq(), Keyboards.startMenu());
             case Constants.CB_PROCESS_OTHER -> handleStart(chatId);
             case Constants.CB_RESTART -> handleStart(chatId);
-            case Constants.CB_START_PROCESS -> startProcessing(chatId);
+            case Constants.CB_START_PROCESS -> startProcessing(chatId, s, false);
+            case Constants.CB_START_PROCESS_MERGED -> startProcessing(chatId, s, true);
             default -> sendText(chatId, "Неизвестная команда.", null);
         }
     }
 
-    private void startProcessing(long chatId) throws TelegramApiException {
-        Session s = touchOrExpire(chatId);
-        if (s == null) return;
+    /**
+     * @param merged true — один общий отчёт по всем файлам сессии, false — отдельный отчёт по каждому файлу
+     */
+    private void startProcessing(long chatId, Session s, boolean merged) {
+        if (s == null) {
+            sendSessionExpired(chatId);
+            return;
+        }
+
+        // повторное нажатие, пока файлы сессии обрабатываются: вторую задачу не ставим и состояние не трогаем
+        if (s.getState() == UserState.PROCESSING) {
+            sendText(chatId, "Обработка уже выполняется.  \nРезультат придёт, когда она закончится.", null);
+            return;
+        }
 
         if (s.getFiles().isEmpty()) {
             sendText(chatId, "Сначала загрузите хотя бы один файл экспорта.", Keyboards.startMenu());
             return;
         }
 
+        UserState previousState = s.getState();
         s.setState(UserState.PROCESSING);
         int total = s.getFiles().size();
-        sendText(chatId,
-                "Начинаю обработку " + total + " файл(ов).  \nПожалуйста, подождите.",
-                null);
 
-        // Обрабатываем асинхронно, чтобы не блокировать polling
+        // Обрабатываем асинхронно, чтобы не блокировать polling.
+        // Задача ждёт announced, чтобы "Начинаю обработку" не обогнало сообщение о месте в очереди.
         List<Session.FileMeta> filesSnapshot = new ArrayList<>(s.getFiles());
-        executor.submit(() -> processFilesAsync(chatId, filesSnapshot));
+        // стратегия (способ разбора, Excel) и оценка времени — заранее, по размерам из сообщений с файлами
+        ProcessingPlan plan = planner.plan(filesSnapshot.stream().map(Session.FileMeta::fileSize).toList());
+        CompletableFuture<Void> announced = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        ProcessingScheduler.Admission admission = scheduler.submit(chatId, () -> {
+            metrics.queueWait(Duration.ofNanos(System.nanoTime() - submittedAt));
+            announced.join();
+            sendText(chatId,
+                    "Начинаю обработку " + total + " файл(ов).  \n" +
+                            (plan.longRunning()
+                                    ? "Файлы большие (" + megabytes(plan.totalBytes()) + " МБ), обработка займёт около "
+                                            + minutes(plan.estimate()) + ".  \n"
+                                    : "") +
+                            "Пожалуйста, подождите.",
+                    null);
+            processFilesAsync(chatId, filesSnapshot, plan, merged);
+        });
+
+        try {
+            if (admission.rejection() == ProcessingScheduler.Rejection.CHAT_BUSY) {
+                // задача чата ещё в системе: предыдущая обработка уже отдала результат, но ещё убирает за собой
+                s.setState(previousState);
+                sendText(chatId,
+                        "Предыдущая обработка ещё завершается.  \nНажмите Начать обработку через несколько секунд.",
+                        Keyboards.readyMenu(total > 1));
+            } else if (admission.rejection() == ProcessingScheduler.Rejection.SHUTTING_DOWN) {
+                s.setState(previousState);
+                sendText(chatId,
+                        "Бот перезапускается.  \nНажмите Начать обработку через минуту.",
+                        Keyboards.readyMenu(total > 1));
+            } else if (!admission.accepted()) {
+                s.setState(UserState.READY_TO_PROCESS);
+                sendText(chatId,
+                        "Сейчас слишком много файлов в обработке.  \nПопробуйте нажать Начать обработку чуть позже.",
+                        Keyboards.readyMenu(total > 1));
+            } else if (admission.queued()) {
+                sendText(chatId,
+                        "Все обработчики сейчас заняты, вы в очереди: " + admission.position() + ".  \n" +
+                        "Обработка начнётся автоматически.",
+                        null);
+            }
+        } finally {
+            announced.complete(null);
+        }
     }
 
-    private void processFilesAsync(long chatId, List<Session.FileMeta> files) {
+    private void processFilesAsync(long chatId, List<Session.FileMeta> files, ProcessingPlan plan, boolean merged) {
         Path tmpDir = null;
+        List<CompletableFuture<ResultBundle>> parsed = new ArrayList<>();
+        AtomicBoolean aborted = new AtomicBoolean(false);
         try {
             tmpDir = Files.createTempDirectory("tg-export-" + chatId + "-");
             int total = files.size();
-            for (int i = 0; i < total; i++) {
+            // отчёты, которые пишутся в Excel прямо по ходу разбора (см. ниже)
+            ExcelSpillWriter[] spills = new ExcelSpillWriter[total];
+
+            // 1) Скачивание (ioExecutor) + парсинг (ограниченный parsePool) — параллельно, общие пулы на все чаты.
+            //    Разбор из потока скачивания (PIPELINED) почти всё время ждёт сеть, поэтому тоже идёт на ioExecutor.
+            //    В работе не больше FILES_IN_FLIGHT файлов: следующий стартует, когда забран очередной результат,
+            //    так что готовые, но ещё не забранные по порядку результаты не копятся в памяти.
+            Path dir = tmpDir;
+            IntFunction<CompletableFuture<ResultBundle>> start = i -> {
                 Session.FileMeta meta = files.get(i);
-                boolean isLast = (i == total - 1);
-
-                // 1) Скачиваем ОДИН файл
-                Path p = downloadFileTo(tmpDir, meta, i + 1);
-
-                // 2) Обрабатываем ОДИН файл
-                ResultBundle result = ChatExportService.processJsonFiles(List.of(p));
-                int participantsCount = result.participants().size();
-                int mentionsCount = result.mentions().size();
-
-                // 3) Отправляем отдельный результат
-                String progressLine = "Файл " + (i + 1) + "/" + total + " обработан.";
-                String fileName = meta.fileName();
-
-                // Порог по ТЗ: считаем именно участников
-                if (participantsCount <= Constants.TEXT_THRESHOLD_MAX) {
-                    String text = progressLine + "\n\n" + TextResultFormatter.format(List.of(fileName), result);
-                    SendMessage m = new SendMessage(String.valueOf(chatId), text);
-                    if (isLast) {
-                        m.setReplyMarkup(Keyboards.processOtherMenu());
+                ProcessingPlan.FilePlan filePlan = plan.files().get(i);
+                int index = i + 1;
+                // Тот же файл (file_unique_id) уже разбирали — не скачиваем и не парсим
+                ResultBundle cached = resultCache.get(ResultCache.uniqueIdKey(meta.fileUniqueId()));
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+                // Большой файл с отдельным отчётом: как только участников больше порога текста, строки идут сразу
+                // в Excel, а не копятся в результате. Параллельный разбор собирает куски целиком — ему не нужно.
+                ExcelSpillWriter excel = !merged && filePlan.streamingExcel() && filePlan.parseMode() != ParseMode.PARALLEL
+                        ? new ExcelSpillWriter(reportPath(dir, index))
+                        : null;
+                spills[i] = excel;
+                if (filePlan.pipelined()) {
+                    // скачивание и разбор одним потоком данных: парсер читает прямо из ответа Bot API
+                    return CompletableFuture.supplyAsync(
+                            () -> downloadAndParse(dir, meta, index, aborted, excel), executors.ioExecutor());
+                }
+                return CompletableFuture
+                        .supplyAsync(() -> download(dir, meta, index, aborted), executors.ioExecutor())
+                        .thenApplyAsync(p -> parse(p, meta, filePlan.parseMode(), excel), executors.parsePool());
+            };
+            for (int i = 0; i < Math.min(total, Constants.FILES_IN_FLIGHT); i++) {
+                parsed.add(start.apply(i));
+            }
+
+            // 2) Результаты забираем строго в исходном порядке, пока следующие файлы ещё в работе.
+            //    Забранный результат отпускаем из списка и запускаем следующий файл.
+            if (merged) {
+                // общий отчёт: после порога участников строки идут в Excel, а в памяти остаются только ключи дедупа.
+                // Порог — с которого отчёт и так был бы Excel (потоковый план) или потоковым Excel (по числу строк).
+                int spillAfter = plan.streamingExcel() ? Constants.TEXT_THRESHOLD_MAX : Constants.EXCEL_STREAMING_MIN_ROWS;
+                try (ExcelSpillWriter excel = new ExcelSpillWriter(reportPath(tmpDir, 1))) {
+                    ResultAccumulator accumulator = new ResultAccumulator(spillAfter, excel);
+                    for (int i = 0; i < total; i++) {
+                        ResultBundle next = joinUnwrapped(parsed.get(i));
+                        metrics.run(Stage.DEDUP, () -> accumulator.add(next));
+                        parsed.set(i, CompletableFuture.completedFuture(null));
+                        if (i + Constants.FILES_IN_FLIGHT < total) {
+                            parsed.add(start.apply(i + Constants.FILES_IN_FLIGHT));
+                        }
                     }
-                    execute(m);
-                } else {
-                    Path xlsx = ExcelExporter.export(result, tmpDir);
-
-                    // ExcelExporter всегда пишет participants.xlsx — переименуем, чтобы не перетирать при нескольких файлах
-                    Path uniqueXlsx = tmpDir.resolve(String.format("participants_%02d.xlsx", i + 1));
-                    Files.move(xlsx, uniqueXlsx, StandardCopyOption.REPLACE_EXISTING);
-
-                    SendDocument doc = new SendDocument();
-                    doc.setChatId(String.valueOf(chatId));
-                    doc.setCaption(
-                            progressLine + "\n" +
-                                    "Готово.\n" +
-                                    "Файл: " + fileName + "\n" +
-                                    "Количество участников: " + participantsCount + "\n" +
-                                    "Количество упоминаний: " + mentionsCount + "\n" +
-                                    "Я сформировал Excel файл."
-                    );
-                    if (isLast) {
-                        doc.setReplyMarkup(Keyboards.processOtherMenu());
+                    List<String> fileNames = files.stream().map(Session.FileMeta::fileName).toList();
+                    String progressLine = "Обработано файлов: " + total + ". Общий отчёт без повторов между файлами.";
+                    ResultBundle mergedResult = metrics.time(Stage.DEDUP, accumulator::finish);
+                    // уникальных пользователей аккумулятор уже посчитал по ходу слияния
+                    int uniqueUsers = accumulator.uniqueUsers();
+                    if (excel.spilled()) {
+                        metrics.time(Stage.EXPORT, excel::finish);
+                        sendExcel(chatId, reportPath(tmpDir, 1), excelCaption(progressLine, fileNames,
+                                excel.participantsCount(), excel.mentionsCount(), uniqueUsers), true);
+                    } else {
+                        sendResult(chatId, tmpDir, 1, progressLine, fileNames, mergedResult, uniqueUsers,
+                                plan.streamingExcel(), true);
                     }
-                    doc.setDocument(new InputFile(uniqueXlsx.toFile(), uniqueXlsx.getFileName().toString()));
-                    execute(doc);
                 }
-
-                // Небольшая пауза: если файлов много (до 10), Telegram может ограничивать скорость отправки.
-                if (!isLast) {
-                    try {
-                        Thread.sleep(250);
-                    } catch (InterruptedException ignored) {
+            } else {
+                for (int i = 0; i < total; i++) {
+                    boolean isLast = (i == total - 1);
+                    ResultBundle result = joinUnwrapped(parsed.get(i));
+                    parsed.set(i, CompletableFuture.completedFuture(null));
+                    if (i + Constants.FILES_IN_FLIGHT < total) {
+                        parsed.add(start.apply(i + Constants.FILES_IN_FLIGHT));
                     }
+                    ExcelSpillWriter excel = spills[i];
+                    spills[i] = null;
+
+                    String progressLine = "Файл " + (i + 1) + "/" + total + " обработан.";
+                    if (excel != null && excel.spilled()) {
+                        // отчёт уже записан по ходу разбора
+                        sendExcel(chatId, reportPath(tmpDir, i + 1),
+                                excelCaption(progressLine, List.of(files.get(i).fileName()), excel.participantsCount(),
+                                        excel.mentionsCount(), excel.uniqueUsers()),
+                                isLast);
+                        continue;
+                    }
+                    int uniqueUsers = result.uniqueUsersCount();
+                    // темп отправки (лимиты Telegram, 429) держит OutboundDispatcher
+                    sendResult(chatId, tmpDir, i + 1, progressLine, List.of(files.get(i).fileName()), result,
+                            uniqueUsers, plan.files().get(i).streamingExcel(), isLast);
                 }
             }
 
@@ -260,35 +409,195 @@ public class Bot extends TelegramLongPollingBot {
             sessionStore.reset(chatId);
         } catch (Exception e) {
             log.error("Processing error", e);
-            try {
-                SendMessage m = new SendMessage(String.valueOf(chatId),
-                        "Произошла ошибка при обработке файлов.  \nПроверьте формат экспорта и попробуйте снова.");
-                m.setReplyMarkup(Keyboards.processOtherMenu());
-                execute(m);
-            } catch (TelegramApiException ignored) {
-            }
+            SendMessage m = new SendMessage(String.valueOf(chatId),
+                    "Произошла ошибка при обработке файлов.  \nПроверьте формат экспорта и попробуйте снова.");
+            m.setReplyMarkup(Keyboards.processOtherMenu());
+            reply(chatId, m);
             sessionStore.reset(chatId);
         } finally {
+            // Ещё не начатые файлы пропускаем, а начатые дожидаемся — они пишут в tmpDir
+            aborted.set(true);
+            for (CompletableFuture<ResultBundle> f : parsed) {
+                try {
+                    f.join();
+                } catch (Exception ignored) {
+                }
+            }
             if (tmpDir != null) {
                 deleteRecursively(tmpDir);
             }
         }
     }
 
+    /**
+     * Отправляет один отчёт: текстом, если участников не больше порога, иначе Excel-файлом.
+     *
+     * @param uniqueUsers    разных пользователей среди участников и упоминаний (для подписи к Excel)
+     * @param streamingExcel план уже решил писать Excel потоково (большой файл); иначе — по числу строк
+     */
+    private void sendResult(long chatId, Path tmpDir, int index, String progressLine, List<String> fileNames,
+                            ResultBundle result, int uniqueUsers, boolean streamingExcel,
+                            boolean isLast) throws TelegramApiException, IOException {
+        int participantsCount = result.participants().size();
+        int mentionsCount = result.mentions().size();
+
+        // Порог по ТЗ: считаем именно участников
+        if (participantsCount <= Constants.TEXT_THRESHOLD_MAX) {
+            // длинный отчёт уходит несколькими сообщениями (лимит Telegram 4096 символов): следующая страница
+            // строится, когда предыдущая уже отправлена; кнопки — только под последней
+            Iterator<String> pages = TextResultFormatter.pages(
+                    Stream.concat(Stream.of(progressLine, ""), TextResultFormatter.lines(fileNames, result)),
+                    TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS);
+            while (pages.hasNext()) {
+                SendMessage m = new SendMessage(String.valueOf(chatId), metrics.time(Stage.FORMAT, pages::next));
+                if (isLast && !pages.hasNext()) {
+                    m.setReplyMarkup(Keyboards.processOtherMenu());
+                }
+                outbound.sendAndWait(chatId, OutboundDispatcher.Priority.BULK, () -> metrics.time(Stage.SEND, () -> execute(m)));
+            }
+            return;
+        }
+
+        int rows = participantsCount + mentionsCount + result.channels().size();
+        boolean streaming = streamingExcel || rows >= Constants.EXCEL_STREAMING_MIN_ROWS;
+        Path xlsx = metrics.time(Stage.EXPORT, () -> streaming
+                ? ExcelExporter.exportStreaming(result, tmpDir)
+                : ExcelExporter.export(result, tmpDir));
+
+        // ExcelExporter всегда пишет participants.xlsx — переименуем, чтобы не перетирать при нескольких файлах
+        Path uniqueXlsx = reportPath(tmpDir, index);
+        Files.move(xlsx, uniqueXlsx, StandardCopyOption.REPLACE_EXISTING);
+
+        sendExcel(chatId, uniqueXlsx,
+                excelCaption(progressLine, fileNames, participantsCount, mentionsCount, uniqueUsers), isLast);
+    }
+
+    private static String excelCaption(String progressLine, List<String> fileNames, int participantsCount,
+                                       int mentionsCount, int uniqueUsers) {
+        return progressLine + "\n" +
+                "Готово.\n" +
+                (fileNames.size() == 1 ? "Файл: " : "Файлы: ") + String.join(", ", fileNames) + "\n" +
+                "Количество участников: " + participantsCount + "\n" +
+                "Количество упоминаний: " + mentionsCount + "\n" +
+                "Уникальных пользователей: " + uniqueUsers + "\n" +
+                "Я сформировал Excel файл.";
+    }
+
+    private void sendExcel(long chatId, Path xlsx, String caption, boolean isLast) throws TelegramApiException {
+        SendDocument doc = new SendDocument();
+        doc.setChatId(String.valueOf(chatId));
+        doc.setCaption(caption);
+        if (isLast) {
+            doc.setReplyMarkup(Keyboards.processOtherMenu());
+        }
+        doc.setDocument(new InputFile(xlsx.toFile(), xlsx.getFileName().toString()));
+        // ждём отправки: файл удаляется вместе с tmpDir сразу после обработки
+        outbound.sendAndWait(chatId, OutboundDispatcher.Priority.BULK, () -> metrics.time(Stage.SEND, () -> execute(doc)));
+    }
+
+    private static Path reportPath(Path dir, int index) {
+        return dir.resolve(String.format("participants_%02d.xlsx", index));
+    }
+
+    private Path download(Path dir, Session.FileMeta meta, int index, AtomicBoolean aborted) {
+        if (aborted.get()) {
+            throw new CompletionException(new IllegalStateException("Processing aborted"));
+        }
+        try {
+            Path downloaded = metrics.time(Stage.DOWNLOAD, () -> downloadFileTo(dir, meta, index));
+            metrics.downloaded(Files.size(downloaded));
+            return downloaded;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * @param excel если не null — отчёт пишется в Excel по ходу разбора, как только участников больше порога текста
+     */
+    private ResultBundle downloadAndParse(Path dir, Session.FileMeta meta, int index, AtomicBoolean aborted,
+                                          ExcelSpillWriter excel) {
+        if (aborted.get()) {
+            throw new CompletionException(new IllegalStateException("Processing aborted"));
+        }
+        try (excel) {
+            ResultBundle result = metrics.time(Stage.DOWNLOAD_PARSE, () -> {
+                org.telegram.telegrambots.meta.api.objects.File file = execute(new GetFile(meta.fileId()));
+                Path teeTo = keepDownloads ? targetPath(dir, meta, index) : null;
+                InputStream in = downloadFileAsStream(file);
+                return excel == null
+                        ? ChatExportService.processJsonStream(in, teeTo)
+                        : ChatExportService.processJsonStream(in, teeTo, Constants.TEXT_THRESHOLD_MAX, excel);
+            });
+            metrics.downloaded(meta.fileSize());
+            return parsed(meta, result, excel);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private ResultBundle parse(Path p, Session.FileMeta meta, ParseMode mode, ExcelSpillWriter excel) {
+        try (excel) {
+            ResultBundle result = metrics.time(Stage.PARSE, () -> excel == null
+                    ? ChatExportService.processJsonFile(p, mode, executors.chunkPool(), resultCache)
+                    : mode.parse(p, executors.chunkPool(), Constants.TEXT_THRESHOLD_MAX, excel));
+            return parsed(meta, result, excel);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Разобранный файл: в метрики и в кэш. Если порог пройден и строки ушли в Excel, книга дописывается,
+     * а в кэш класть нечего — результат в памяти не собирался.
+     */
+    private ResultBundle parsed(Session.FileMeta meta, ResultBundle result, ExcelSpillWriter excel) throws IOException {
+        if (excel != null && excel.spilled()) {
+            metrics.time(Stage.EXPORT, excel::finish);
+            metrics.found(excel.participantsCount(), excel.mentionsCount(), excel.channelsCount());
+            return result;
+        }
+        metrics.found(result);
+        return resultCache.put(ResultCache.uniqueIdKey(meta.fileUniqueId()), result);
+    }
+
+    private static long megabytes(long bytes) {
+        return Math.max(1, Math.round(bytes / (1024.0 * 1024.0)));
+    }
+
+    private static String minutes(Duration d) {
+        long minutes = Math.round(d.toSeconds() / 60.0);
+        return minutes < 1 ? "минуты" : minutes + " мин.";
+    }
+
+    private static <T> T joinUnwrapped(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private Path downloadFileTo(Path dir, Session.FileMeta meta, int index) throws TelegramApiException, IOException {
         GetFile gf = new GetFile(meta.fileId());
         org.telegram.telegrambots.meta.api.objects.File file = execute(gf);
         java.io.File downloaded = downloadFile(file);
 
+        Path target = targetPath(dir, meta, index);
+        Files.move(downloaded.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    private static Path targetPath(Path dir, Session.FileMeta meta, int index) {
         // В Telegram Desktop export часто все части называются одинаково (например, result.json).
         // Если сохранять по оригинальному имени, то второй файл перезапишет первый.
         String originalName = meta.fileName() == null ? "export.json" : meta.fileName();
         String safeName = safeFilename(originalName);
         String uniqueName = String.format("%02d_%s", index, safeName);
-
-        Path target = dir.resolve(uniqueName);
-        Files.move(downloaded.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
-        return target;
+        return dir.resolve(uniqueName);
     }
 
     /**
@@ -305,15 +614,20 @@ public class Bot extends TelegramLongPollingBot {
         return cleaned.isBlank() ? "export.json" : cleaned;
     }
 
-    private Session touchOrExpire(long chatId) throws TelegramApiException {
-        Session s = sessionStore.getOrCreate(chatId);
+    private Session touchOrExpire(long chatId) {
+        return touch(chatId, sessionStore.getOrCreate(chatId));
+    }
+
+    private Session touchIfPresent(long chatId) {
+        Session s = sessionStore.find(chatId);
+        return s == null ? null : touch(chatId, s);
+    }
+
+    private Session touch(long chatId, Session s) {
         synchronized (s) {
             if (sessionStore.isExpired(s)) {
                 sessionStore.reset(chatId);
-                SendMessage m = new SendMessage(String.valueOf(chatId),
-                        "Сессия истекла.  \nПожалуйста, начните заново.");
-                m.setReplyMarkup(Keyboards.restartMenu());
-                execute(m);
+                sendSessionExpired(chatId);
                 return null;
             }
             s.touch();
@@ -321,12 +635,29 @@ public class Bot extends TelegramLongPollingBot {
         }
     }
 
-    private void sendText(long chatId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard markup) throws TelegramApiException {
+    private void sendSessionExpired(long chatId) {
+        SendMessage m = new SendMessage(String.valueOf(chatId),
+                "Сессия истекла.  \nПожалуйста, начните заново.");
+        m.setReplyMarkup(Keyboards.restartMenu());
+        reply(chatId, m);
+    }
+
+    private void sendText(long chatId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard markup) {
         SendMessage m = new SendMessage(String.valueOf(chatId), text);
         if (markup != null) {
             m.setReplyMarkup(markup);
         }
-        execute(m);
+        reply(chatId, m);
+    }
+
+    /**
+     * Интерактивный ответ: в очередь отправки без ожидания (порядок сообщений чата сохраняется).
+     */
+    private void reply(long chatId, SendMessage m) {
+        outbound.submit(chatId, OutboundDispatcher.Priority.INTERACTIVE, () -> metrics.time(Stage.SEND, () -> execute(m)))
+                .whenComplete((r, e) -> {
+                    if (e != null) log.warn("Failed to send message to chat {}", chatId, e);
+                });
     }
 
     private static void deleteRecursively(Path path) {
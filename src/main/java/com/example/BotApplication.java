@@ -1,24 +1,46 @@
 package com.example;
 
+import com.example.web.EmbeddedHttpServer;
+import com.example.web.MetricsEndpoint;
+import com.example.web.UpdateMode;
+import com.example.web.WebhookReceiver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.LongPollingBot;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+
 @Slf4j
 @SpringBootApplication
 @EnableScheduling
 public class BotApplication {
 
-	public static void main(String[] args) throws TelegramApiException {
+	public static void main(String[] args) throws TelegramApiException, IOException {
 		ApplicationContext context = SpringApplication.run(BotApplication.class, args);
-		TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-		botsApi.registerBot(context.getBean("bot", LongPollingBot.class));
+		Environment env = context.getEnvironment();
+		EmbeddedHttpServer httpServer = context.getBean(EmbeddedHttpServer.class);
+
+		UpdateMode mode = UpdateMode.fromProperty(env.getProperty("telegram-bot.mode"));
+		if (mode == UpdateMode.WEBHOOK) {
+			// апдейты приходят POST-запросами на встроенный сервер и идут в тот же Bot.onUpdateReceived
+			context.getBean(WebhookReceiver.class)
+					.register(httpServer, context.getBean("bot", Bot.class), env.getProperty("telegram-bot.webhook.url"));
+		} else {
+			TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+			botsApi.registerBot(context.getBean("bot", LongPollingBot.class));
+		}
+		if (env.getProperty("metrics.enabled", Boolean.class, true)) {
+			context.getBean(MetricsEndpoint.class).register(httpServer);
+		}
+		httpServer.start();
+		log.info("Telegram updates mode: {}", mode);
 	}
 
 }
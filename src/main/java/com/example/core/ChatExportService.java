@@ -1,30 +1,111 @@
 package com.example.core;
 
+import com.example.core.cache.ResultCache;
 import com.example.core.model.ResultBundle;
-import com.example.core.model.UserEntry;
+import com.example.core.parse.ParseListener;
+import com.example.core.parse.ParseMode;
 import com.example.core.parse.TelegramJsonExportParser;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public final class ChatExportService {
     private ChatExportService() {}
 
     public static ResultBundle processJsonFiles(List<Path> jsonFiles) throws IOException {
-        Set<UserEntry> participants = new LinkedHashSet<>();
-        Set<UserEntry> mentions = new LinkedHashSet<>();
-        Set<UserEntry> channels = new LinkedHashSet<>();
+        return processJsonFiles(jsonFiles, null);
+    }
 
+    /**
+     * То же, но результаты файлов с одинаковым содержимым (по SHA-256) хранятся в кэше одной копией.
+     */
+    public static ResultBundle processJsonFiles(List<Path> jsonFiles, ResultCache cache) throws IOException {
+        // файлы разбираются по одному и сразу вливаются в общий результат с дедупом между файлами
+        ResultAccumulator merged = new ResultAccumulator();
         for (Path f : jsonFiles) {
-            ResultBundle r = TelegramJsonExportParser.parse(f);
-            participants.addAll(r.participants());
-            mentions.addAll(r.mentions());
-            channels.addAll(r.channels());
+            merged.add(processJsonFile(f, cache));
+        }
+        return merged.toBundle();
+    }
+
+    /**
+     * Один файл: свежий разбор, а если такое содержимое уже есть в кэше — его закэшированная копия.
+     */
+    public static ResultBundle processJsonFile(Path f, ResultCache cache) throws IOException {
+        return processJsonFile(f, ParseMode.TREE, null, cache);
+    }
+
+    /**
+     * То же с выбранным способом разбора (см. ProcessingPlanner).
+     *
+     * Файл уже на диске, поэтому SHA-256 содержимого считается до разбора (одно последовательное чтение):
+     * при попадании в кэш файл не разбирается вовсе — для любого способа разбора, в том числе PARALLEL.
+     *
+     * @param chunkPool пул для кусков PARALLEL (см. {@link ParseMode#parse(Path, ForkJoinPool)})
+     */
+    public static ResultBundle processJsonFile(Path f, ParseMode mode, ForkJoinPool chunkPool, ResultCache cache)
+            throws IOException {
+        if (cache == null || !cache.enabled()) {
+            return mode.parse(f, chunkPool);
+        }
+        String key = ResultCache.contentKey(f);
+        ResultBundle hit = cache.get(key);
+        return hit != null ? hit : cache.put(key, mode.parse(f, chunkPool));
+    }
+
+    /**
+     * Разбор файла прямо из потока скачивания (без ожидания полной загрузки на диск): сеть и парсинг
+     * идут одновременно, время до результата — примерно max(скачивание, парсинг), а не их сумма.
+     *
+     * Кэша по содержимому здесь нет: хэш был бы известен только после разбора и ничего бы не экономил.
+     * Повторный файл не скачивается и не разбирается по ключу file_unique_id (в Bot).
+     * teeTo — если не null, байты попутно пишутся в этот файл
+     * (копия на диске для повторного разбора/отладки); иначе на диск ничего не пишется.
+     *
+     * Поток in закрывается.
+     */
+    public static ResultBundle processJsonStream(InputStream in, Path teeTo) throws IOException {
+        return processJsonStream(in, teeTo, TelegramJsonExportParser::parseStreaming);
+    }
+
+    /**
+     * Разбор из потока скачивания с порогом участников (см. {@link ParseListener}): после порога
+     * результата в памяти нет — он ушёл слушателю.
+     */
+    public static ResultBundle processJsonStream(InputStream in, Path teeTo, int participantsThreshold,
+                                                 ParseListener listener) throws IOException {
+        return processJsonStream(in, teeTo,
+                source -> TelegramJsonExportParser.parseStreaming(source, participantsThreshold, listener));
+    }
+
+    @FunctionalInterface
+    private interface StreamParser {
+        ResultBundle parse(InputStream in) throws IOException;
+    }
+
+    private static ResultBundle processJsonStream(InputStream in, Path teeTo, StreamParser parser) throws IOException {
+        InputStream src = in;
+        if (teeTo != null) {
+            src = new TeeInputStream(src, new BufferedOutputStream(Files.newOutputStream(teeTo)));
         }
 
-        return new ResultBundle(participants, mentions, channels);
+        try (InputStream source = src) {
+            // парсер закрывает свой вход сам — закрываем поток здесь, после того как дочитаем хвост
+            ResultBundle r = parser.parse(new FilterInputStream(source) {
+                @Override
+                public void close() {
+                }
+            });
+            // хвост после корневого объекта: нужен для полной копии
+            source.transferTo(OutputStream.nullOutputStream());
+            return r;
+        }
     }
 }
@@ -0,0 +1,114 @@
+package com.example.core;
+
+import com.example.core.dedup.KeyedUserSet;
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.example.core.parse.ParseListener;
+
+import java.util.Collections;
+
+/**
+ * Общий результат по нескольким файлам, собираемый по мере их разбора.
+ *
+ * Дедуп идёт сразу по ключу {@link KeyedUserSet} (а не по равенству записей), поэтому в памяти
+ * только уникальные пользователи всех файлов, а не N полных наборов. Порядок — первого появления.
+ *
+ * Число уникальных пользователей (участники + упоминания) ведётся по ходу добавления: новый ключ в одном
+ * наборе считается, если его нет в другом, — итог известен без отдельного прохода по наборам.
+ *
+ * С порогом участников память ограничена так же, как у разбора с {@link ParseListener}: после порога найденное
+ * уходит слушателю (например, в Excel), дальше — каждая новая уникальная запись, а наборы держат только ключи.
+ */
+public final class ResultAccumulator {
+    private final KeyedUserSet participants = new KeyedUserSet();
+    private final KeyedUserSet mentions = new KeyedUserSet();
+    private final KeyedUserSet channels = new KeyedUserSet();
+    private final int threshold;
+    private final ParseListener listener;
+    private boolean released;
+    private int files;
+    private int uniqueUsers;
+
+    public ResultAccumulator() {
+        this(Integer.MAX_VALUE, null);
+    }
+
+    public ResultAccumulator(int participantsThreshold, ParseListener listener) {
+        this.threshold = participantsThreshold;
+        this.listener = listener;
+    }
+
+    public void add(ResultBundle r) {
+        for (UserEntry u : r.participants()) {
+            String key = u.key();
+            if (!participants.add(u, key)) continue;
+            if (!mentions.hasEntry(key)) uniqueUsers++;
+            if (released) {
+                listener.participant(u);
+            } else if (listener != null && participants.size() > threshold) {
+                release();
+            }
+        }
+        for (UserEntry u : r.mentions()) {
+            String key = u.key();
+            if (!mentions.add(u, key)) continue;
+            if (!participants.hasEntry(key)) uniqueUsers++;
+            if (released) listener.mention(u);
+        }
+        for (UserEntry u : r.channels()) {
+            if (channels.add(u) && released) listener.channel(u);
+        }
+        files++;
+    }
+
+    /**
+     * Порог пройден: найденное — слушателю, дальше наборы держат только ключи.
+     */
+    private void release() {
+        listener.thresholdPassed(toBundle());
+        participants.keepKeysOnly();
+        mentions.keepKeysOnly();
+        channels.keepKeysOnly();
+        released = true;
+    }
+
+    /**
+     * Все файлы добавлены: слушателю, если порог пройден, — {@link ParseListener#finished(int)}.
+     * Итог — как у {@link #toBundle()} (после порога — пустые наборы).
+     */
+    public ResultBundle finish() {
+        if (released) {
+            listener.finished(uniqueUsers);
+        }
+        return toBundle();
+    }
+
+    public int files() {
+        return files;
+    }
+
+    /**
+     * Участников в памяти; после порога — 0 (записи у слушателя).
+     */
+    public int participantsCount() {
+        return participants.size();
+    }
+
+    /**
+     * Разных пользователей среди участников и упоминаний всех файлов — то же, что
+     * {@link ResultBundle#uniqueUsersCount()} итога, но без подсчёта.
+     */
+    public int uniqueUsers() {
+        return uniqueUsers;
+    }
+
+    /**
+     * Итог без копирования: наборы только для чтения поверх накопленных.
+     */
+    public ResultBundle toBundle() {
+        return new ResultBundle(
+                Collections.unmodifiableSet(participants),
+                Collections.unmodifiableSet(mentions),
+                Collections.unmodifiableSet(channels));
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.core.cache;
+
+import com.example.core.model.ResultBundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Кэш результатов разбора: один и тот же экспорт часто присылают повторно (в новой сессии или несколько админов чата).
+ *
+ * Ключи:
+ * - {@link #uniqueIdKey(String)} — Telegram file_unique_id, позволяет не скачивать файл вовсе;
+ * - {@link #contentKey(Path)} — SHA-256 содержимого скачанного файла, считается до разбора и ловит тот же файл,
+ *   загруженный заново (другой file_unique_id).
+ *
+ * Хранится только в памяти, LRU с ограничением по числу записей и по "весу" (сумма строк результата) + TTL.
+ * result-cache.max-entries=0 отключает кэш.
+ */
+@Component
+public class ResultCache {
+
+    public record Stats(long hits, long misses, int entries, long weight) {}
+
+    private record Entry(ResultBundle result, long weight, long expiresAtNanos) {}
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // accessOrder=true — порядок итерации от давно использованных к недавним (LRU)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public ResultCache(@Value("${result-cache.max-entries:200}") int maxEntries,
+                       @Value("${result-cache.max-weight:2000000}") long maxWeight,
+                       @Value("${result-cache.ttl-minutes:30}") long ttlMinutes) {
+        this(maxEntries, maxWeight, Duration.ofMinutes(ttlMinutes), System::nanoTime);
+    }
+
+    ResultCache(int maxEntries, long maxWeight, Duration ttl, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    public static String uniqueIdKey(String fileUniqueId) {
+        return fileUniqueId == null || fileUniqueId.isBlank() ? null : "uid:" + fileUniqueId;
+    }
+
+    /**
+     * Ключ по содержимому файла: одно последовательное чтение, дешевле любого разбора.
+     */
+    public static String contentKey(Path file) throws IOException {
+        MessageDigest sha256 = newContentDigest();
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                sha256.update(buf, 0, n);
+            }
+        }
+        return "sha256:" + HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public boolean enabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Результат по ключу или null (промах, истёкший TTL, кэш выключен или key == null).
+     */
+    public ResultBundle get(String key) {
+        if (key == null || !enabled()) return null;
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.expiresAtNanos() - clock.getAsLong() <= 0) {
+                remove(key);
+                e = null;
+            }
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return e.result();
+        }
+    }
+
+    /**
+     * Кладёт результат в кэш и возвращает закэшированную неизменяемую компактную копию ({@link ResultBundle#compact()}):
+     * кэш держит результаты подолгу, а колонки занимают в разы меньше памяти, чем наборы записей.
+     * Если результат не кэшируется — возвращает его как есть.
+     */
+    public ResultBundle put(String key, ResultBundle result) {
+        if (key == null || result == null || !enabled()) return result;
+        long w = 1L + result.participants().size() + result.mentions().size() + result.channels().size();
+        if (w > maxWeight) return result;
+        // результат отдаётся нескольким потребителям — компактная копия заодно и неизменяемая
+        ResultBundle frozen = result.compact();
+
+        synchronized (this) {
+            remove(key);
+            entries.put(key, new Entry(frozen, w, clock.getAsLong() + ttlNanos));
+            weight += w;
+            evict();
+        }
+        return frozen;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), entries.size(), weight);
+    }
+
+    // вызывается под монитором
+    private void evict() {
+        long now = clock.getAsLong();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || weight > maxWeight)) {
+            weight -= it.next().getValue().weight();
+            it.remove();
+        }
+        // заодно выбрасываем истёкшие среди самых старых по использованию
+        it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next().getValue();
+            if (e.expiresAtNanos() - now > 0) break;
+            weight -= e.weight();
+            it.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            weight -= old.weight();
+        }
+    }
+}
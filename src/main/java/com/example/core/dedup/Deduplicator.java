@@ -2,40 +2,52 @@ package com.example.core.dedup;
 
 import com.example.core.model.UserEntry;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public final class Deduplicator {
     private Deduplicator() {}
 
+    private static final String[] DELETED_ACCOUNT_NAMES = {"deleted account", "удаленный аккаунт", "удалённый аккаунт"};
+
     public static Set<UserEntry> dedup(Set<UserEntry> input) {
-        Map<String, UserEntry> map = new LinkedHashMap<>();
-        for (UserEntry u : input) {
-            String key = key(u);
-            if (key == null) continue;
-            map.putIfAbsent(key, u);
-        }
-        return map.values().stream().collect(Collectors.toCollection(java.util.LinkedHashSet::new));
+        KeyedUserSet out = new KeyedUserSet();
+        out.addAll(input);
+        return out;
     }
 
-    public static boolean isDeletedAccount(UserEntry u) {
-        String name = (u.displayName() == null) ? "" : u.displayName().trim().toLowerCase();
-        return name.equals("deleted account") || name.equals("удаленный аккаунт") || name.equals("удалённый аккаунт");
+    /**
+     * Дедуп и фильтр удалённых аккаунтов за один проход, без промежуточных коллекций.
+     */
+    public static Set<UserEntry> dedupWithoutDeleted(Set<UserEntry> input) {
+        KeyedUserSet out = KeyedUserSet.withoutDeleted();
+        out.addAll(input);
+        return out;
     }
 
-    private static String key(UserEntry u) {
-        if (u == null) return null;
-        if (u.username() != null && !u.username().isBlank()) {
-            return "@" + u.username().trim().toLowerCase();
-        }
-        if (u.link() != null && !u.link().isBlank()) {
-            return "link:" + u.link().trim().toLowerCase();
-        }
-        if (u.displayName() != null && !u.displayName().isBlank()) {
-            return "name:" + u.displayName().trim().toLowerCase();
+    /**
+     * Без аллокаций: trim по индексам и сравнение без учёта регистра на месте.
+     */
+    public static boolean isDeletedAccount(UserEntry u) {
+        String name = u.displayName();
+        if (name == null) return false;
+        int from = 0;
+        int to = name.length();
+        while (from < to && name.charAt(from) <= ' ') from++;
+        while (to > from && name.charAt(to - 1) <= ' ') to--;
+        for (String deleted : DELETED_ACCOUNT_NAMES) {
+            if (to - from == deleted.length() && name.regionMatches(true, from, deleted, 0, deleted.length())) {
+                return true;
+            }
         }
-        return null;
+        return false;
+    }
+
+    /**
+     * Нормализованный ключ дедупликации: @username, иначе link:, иначе name: (всё в нижнем регистре).
+     * null — у записи нет ни одного признака, такие записи отбрасываются.
+     * Ключ не хранится в записи; {@link KeyedUserSet} держит его как ключ своей карты.
+     */
+    public static String key(UserEntry u) {
+        return u == null ? null : u.key();
     }
 }
@@ -0,0 +1,161 @@
+package com.example.core.dedup;
+
+import com.example.core.model.UserEntry;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Набор пользователей с дедупом по ключу {@link UserEntry#key()} прямо при добавлении.
+ *
+ * - порядок — первого появления, повторная запись с тем же ключом (в любом регистре) не добавляется;
+ * - записи без ключа отбрасываются;
+ * - при dropDeleted удалённый аккаунт, пришедший первым по своему ключу, занимает ключ «надгробием»:
+ *   в набор он не попадает, и последующие записи с тем же ключом тоже. Это ровно прежний
+ *   «сначала dedup, потом фильтр deleted», но без второго прохода.
+ *
+ * В памяти — только уникальные ключи, а не все сырые вхождения. После {@link #keepKeysOnly()} — и записей
+ * больше нет: только ключи, чтобы по-прежнему отсекать повторы.
+ */
+public final class KeyedUserSet extends AbstractSet<UserEntry> {
+
+    private static final UserEntry TOMBSTONE = new UserEntry(null, null, null);
+    // ключ занят записью, которая уже отдана наружу (keepKeysOnly)
+    private static final UserEntry RELEASED = new UserEntry(null, null, null);
+
+    private final Map<String, UserEntry> byKey = new LinkedHashMap<>();
+    private final boolean dropDeleted;
+    private boolean keysOnly;
+    private int size;
+
+    public KeyedUserSet() {
+        this(false);
+    }
+
+    private KeyedUserSet(boolean dropDeleted) {
+        this.dropDeleted = dropDeleted;
+    }
+
+    /**
+     * Набор, который сразу отбрасывает удалённые аккаунты.
+     */
+    public static KeyedUserSet withoutDeleted() {
+        return new KeyedUserSet(true);
+    }
+
+    /**
+     * @return true, если запись добавлена (ключ встретился впервые и это не удалённый аккаунт)
+     */
+    @Override
+    public boolean add(UserEntry u) {
+        return add(u, Deduplicator.key(u));
+    }
+
+    /**
+     * То же с уже посчитанным ключом u (он должен быть {@link UserEntry#key()}): чтобы не нормализовать
+     * поля второй раз, когда ключ тут же нужен вызывающему.
+     */
+    public boolean add(UserEntry u, String key) {
+        if (key == null || byKey.containsKey(key)) return false;
+        if (dropDeleted && Deduplicator.isDeletedAccount(u)) {
+            byKey.put(key, TOMBSTONE);
+            return false;
+        }
+        if (keysOnly) {
+            byKey.put(key, RELEASED);
+            return true;
+        }
+        byKey.put(key, u);
+        size++;
+        return true;
+    }
+
+    /**
+     * Дальше набор хранит только ключи: имеющиеся записи отпускаются, новые не сохраняются. add по-прежнему
+     * отвечает, встретился ли ключ впервые, hasEntry — есть ли по нему пользователь; обход и size — пустые.
+     * Для разбора, записи которого уже ушли в отчёт (см. ParseListener).
+     */
+    public void keepKeysOnly() {
+        byKey.replaceAll((key, u) -> u == TOMBSTONE ? TOMBSTONE : RELEASED);
+        keysOnly = true;
+        size = 0;
+    }
+
+    /**
+     * Дописывает набор, собранный по следующему куску того же входа: ключи, которых ещё нет,
+     * переносятся по порядку вместе с «надгробиями». Итог — как если бы оба куска добавлялись в один набор.
+     */
+    public void merge(KeyedUserSet next) {
+        for (Map.Entry<String, UserEntry> e : next.byKey.entrySet()) {
+            UserEntry u = keysOnly && e.getValue() != TOMBSTONE ? RELEASED : e.getValue();
+            if (byKey.putIfAbsent(e.getKey(), u) == null && u != TOMBSTONE && u != RELEASED) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Ключ уже занят — записью или удалённым аккаунтом.
+     */
+    public boolean containsKey(String key) {
+        return byKey.containsKey(key);
+    }
+
+    /**
+     * По ключу есть запись в наборе (ключ, занятый удалённым аккаунтом, не считается).
+     */
+    public boolean hasEntry(String key) {
+        UserEntry u = key != null ? byKey.get(key) : null;
+        return u != null && u != TOMBSTONE;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof UserEntry u)) return false;
+        String key = u.key();
+        return key != null && u.equals(byKey.get(key));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        byKey.clear();
+        size = 0;
+    }
+
+    @Override
+    public Iterator<UserEntry> iterator() {
+        Iterator<UserEntry> values = byKey.values().iterator();
+        return new Iterator<>() {
+            private UserEntry next = advance();
+
+            private UserEntry advance() {
+                while (values.hasNext()) {
+                    UserEntry u = values.next();
+                    if (u != TOMBSTONE && u != RELEASED) return u;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public UserEntry next() {
+                if (next == null) throw new NoSuchElementException();
+                UserEntry u = next;
+                next = advance();
+                return u;
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.core.dedup;
+
+import com.example.core.model.UserEntry;
+import com.example.core.model.UserTable;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Сколько разных пользователей в участниках и упоминаниях вместе — по ключу дедупа {@link UserEntry#key()},
+ * без сборки объединения наборов.
+ *
+ * Каждый набор по отдельности уже без повторов по ключу (так их строят парсер, {@link KeyedUserSet}
+ * и {@link com.example.core.ResultAccumulator}), поэтому достаточно вычесть пересечение:
+ * |P| + |M| - |P ∩ M|. Пересечение ищется пробой ключей: в {@link KeyedUserSet} и {@link UserTable}
+ * (результат из кэша) — по их индексу, иначе по набору ключей меньшего из двух. Подсчёт всегда точный:
+ * свежий разбор и результат из кэша дают одно и то же число.
+ */
+public final class UniqueUsers {
+    private UniqueUsers() {}
+
+    public static int count(Collection<UserEntry> participants, Collection<UserEntry> mentions) {
+        return participants.size() + mentions.size() - intersection(participants, mentions);
+    }
+
+    private static int intersection(Collection<UserEntry> a, Collection<UserEntry> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        Collection<UserEntry> small = a.size() <= b.size() ? a : b;
+        Collection<UserEntry> large = small == a ? b : a;
+        // пробуем ключи меньшего набора по индексу большего, если он есть
+        Predicate<String> index = keyIndex(large);
+        if (index != null) return probe(small, index);
+        index = keyIndex(small);
+        if (index != null) return probe(large, index);
+
+        Set<String> keys = new HashSet<>(small.size() * 2);
+        for (UserEntry u : small) {
+            String key = u.key();
+            if (key != null) keys.add(key);
+        }
+        return probe(large, keys::contains);
+    }
+
+    /**
+     * Проба ключа без прохода по набору: {@link KeyedUserSet} и строки {@link UserTable} (результат из кэша)
+     * уже держат индекс по ключу; для прочих наборов — null.
+     */
+    private static Predicate<String> keyIndex(Collection<UserEntry> entries) {
+        if (entries instanceof KeyedUserSet keyed) return keyed::hasEntry;
+        UserTable table = UserTable.backing(entries);
+        return table != null ? table::containsKey : null;
+    }
+
+    private static int probe(Collection<UserEntry> entries, Predicate<String> index) {
+        int common = 0;
+        for (UserEntry u : entries) {
+            String key = u.key();
+            if (key != null && index.test(key)) common++;
+        }
+        return common;
+    }
+}
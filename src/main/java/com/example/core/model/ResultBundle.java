@@ -1,5 +1,7 @@
 package com.example.core.model;
 
+import com.example.core.dedup.UniqueUsers;
+
 import java.util.Set;
 
 public record ResultBundle(
@@ -7,14 +9,24 @@ public record ResultBundle(
         Set<UserEntry> mentions,
         Set<UserEntry> channels
 ) {
-    public int uniqueUsersCount() {
-        // "participants" + "mentions" (каналы не считаем пользователями для порога)
-        return unionSize(participants, mentions);
+    /**
+     * Тот же результат в компактном виде ({@link UserTable}): колонки-массивы, общий пул строк,
+     * ссылки t.me не хранятся. Наборы — только для чтения. Уже компактный результат возвращается как есть.
+     */
+    public ResultBundle compact() {
+        if (UserTable.backing(participants) != null && UserTable.backing(mentions) != null
+                && UserTable.backing(channels) != null) {
+            return this;
+        }
+        StringPool pool = new StringPool();
+        return new ResultBundle(
+                UserTable.of(participants, pool).asSet(),
+                UserTable.of(mentions, pool).asSet(),
+                UserTable.of(channels, pool).asSet());
     }
 
-    private static int unionSize(Set<UserEntry> a, Set<UserEntry> b) {
-        java.util.HashSet<UserEntry> s = new java.util.HashSet<>(a);
-        s.addAll(b);
-        return s.size();
+    public int uniqueUsersCount() {
+        // "participants" + "mentions" (каналы не считаем пользователями для порога), по ключу дедупа
+        return UniqueUsers.count(participants, mentions);
     }
 }
@@ -0,0 +1,19 @@
+package com.example.core.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Пул строк одного результата: одинаковые username/имена в участниках, упоминаниях и каналах
+ * хранятся одним экземпляром. Не потокобезопасен — живёт только пока строится {@link UserTable}.
+ */
+public final class StringPool {
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    public String intern(String s) {
+        if (s == null) return null;
+        String pooled = strings.putIfAbsent(s, s);
+        return pooled != null ? pooled : s;
+    }
+}
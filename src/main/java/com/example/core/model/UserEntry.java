@@ -7,4 +7,30 @@ public record UserEntry(
         String username,     // without @ (may be null)
         String displayName,  // may be null
         String link          // may be null
-) {}
+) implements UserRow {
+
+    /**
+     * Нормализованный ключ дедупликации (см. {@link #keyOf}). Считается при каждом вызове — в горячих местах
+     * его считают один раз на запись: {@link com.example.core.dedup.KeyedUserSet#add(UserEntry, String)}.
+     */
+    public String key() {
+        return keyOf(username, displayName, link);
+    }
+
+    /**
+     * Ключ дедупа для таких полей: @username, иначе link:, иначе name: (всё в нижнем регистре);
+     * null — ни одного признака.
+     */
+    public static String keyOf(String username, String displayName, String link) {
+        if (username != null && !username.isBlank()) {
+            return "@" + username.trim().toLowerCase();
+        }
+        if (link != null && !link.isBlank()) {
+            return "link:" + link.trim().toLowerCase();
+        }
+        if (displayName != null && !displayName.isBlank()) {
+            return "name:" + displayName.trim().toLowerCase();
+        }
+        return null;
+    }
+}
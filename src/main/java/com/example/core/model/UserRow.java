@@ -0,0 +1,25 @@
+package com.example.core.model;
+
+/**
+ * Строка результата для вывода: то, что читают текстовый и Excel-отчёты.
+ *
+ * Реализуют {@link UserEntry} (запись в наборе) и строки компактной таблицы {@link UserTable},
+ * поэтому отчёты обходят и то, и другое, не собирая записи заново.
+ */
+public interface UserRow {
+
+    /**
+     * Без @; может быть null.
+     */
+    String username();
+
+    /**
+     * Может быть null.
+     */
+    String displayName();
+
+    /**
+     * Может быть null.
+     */
+    String link();
+}
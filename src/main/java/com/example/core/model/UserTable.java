@@ -0,0 +1,252 @@
+package com.example.core.model;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Компактное неизменяемое хранение набора пользователей для больших результатов: по колонке-массиву
+ * на поле вместо объекта {@link UserEntry} (и его ключа дедупа) на каждую запись.
+ *
+ * - username и имена берутся из общего {@link StringPool};
+ * - ссылка вида https://t.me/&lt;username&gt; не хранится, а собирается при чтении; хранятся только
+ *   ссылки, которые из username не выводятся;
+ * - ключ дедупа не хранится (набор уже без повторов).
+ *
+ * Отчёты обходят строки через {@link #rowsOf(Collection)}; для остального кода есть {@link #asSet()} —
+ * обычный Set&lt;UserEntry&gt;, записи которого создаются на время обхода.
+ */
+public final class UserTable {
+
+    public static final String LINK_PREFIX = "https://t.me/";
+
+    private final String[] usernames;
+    private final String[] displayNames;
+    // null, пока нет ни одной невыводимой ссылки
+    private final String[] links;
+    // ссылка = LINK_PREFIX + username
+    private final BitSet derivedLinks;
+    // индекс для contains: открытая адресация по хэшу ключа дедупа, в ячейке — номер строки + 1 (0 — пусто);
+    // строится при первом поиске
+    private volatile int[] keyIndex;
+
+    private UserTable(String[] usernames, String[] displayNames, String[] links, BitSet derivedLinks) {
+        this.usernames = usernames;
+        this.displayNames = displayNames;
+        this.links = links;
+        this.derivedLinks = derivedLinks;
+    }
+
+    public static UserTable of(Collection<? extends UserRow> rows, StringPool pool) {
+        int n = rows.size();
+        String[] usernames = new String[n];
+        String[] displayNames = new String[n];
+        String[] links = null;
+        BitSet derived = new BitSet(n);
+        int i = 0;
+        for (UserRow row : rows) {
+            String username = row.username();
+            String link = row.link();
+            usernames[i] = pool.intern(username);
+            displayNames[i] = pool.intern(row.displayName());
+            if (link != null) {
+                if (username != null && link.length() == LINK_PREFIX.length() + username.length()
+                        && link.startsWith(LINK_PREFIX) && link.endsWith(username)) {
+                    derived.set(i);
+                } else {
+                    if (links == null) links = new String[n];
+                    links[i] = link;
+                }
+            }
+            i++;
+        }
+        return new UserTable(usernames, displayNames, links, derived);
+    }
+
+    public int size() {
+        return usernames.length;
+    }
+
+    public String username(int i) {
+        return usernames[i];
+    }
+
+    public String displayName(int i) {
+        return displayNames[i];
+    }
+
+    public String link(int i) {
+        if (derivedLinks.get(i)) return LINK_PREFIX + usernames[i];
+        return links != null ? links[i] : null;
+    }
+
+    /**
+     * Есть ли строка с такими же полями, как у записи. Поиск по хэшу ключа дедупа: индекс — два int на строку,
+     * строится при первом вызове (гонка при построении безвредна — результат тот же).
+     */
+    public boolean contains(UserEntry u) {
+        int[] index = keyIndex();
+        int mask = index.length - 1;
+        for (int slot = hash(u.key()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (Objects.equals(u.username(), usernames[i])
+                    && Objects.equals(u.displayName(), displayNames[i])
+                    && Objects.equals(u.link(), link(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Есть ли строка с таким ключом дедупа {@link UserEntry#key()} — по тому же индексу, что и {@link #contains(UserEntry)}.
+     */
+    public boolean containsKey(String key) {
+        if (key == null) return false;
+        int[] index = keyIndex();
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (key.equals(UserEntry.keyOf(usernames[i], displayNames[i], link(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] keyIndex() {
+        int[] index = keyIndex;
+        if (index == null) {
+            index = buildIndex();
+            keyIndex = index;
+        }
+        return index;
+    }
+
+    private int[] buildIndex() {
+        int[] index = new int[Integer.highestOneBit(Math.max(2, size() * 2 - 1)) << 1];
+        int mask = index.length - 1;
+        for (int i = 0; i < size(); i++) {
+            int slot = hash(UserEntry.keyOf(usernames[i], displayNames[i], link(i))) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = i + 1;
+        }
+        return index;
+    }
+
+    private static int hash(String key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Лёгкое представление i-й строки (без копирования полей).
+     */
+    public UserRow row(int i) {
+        Objects.checkIndex(i, size());
+        return new Row(this, i);
+    }
+
+    public Iterable<UserRow> rows() {
+        return () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public UserRow next() {
+                if (next >= size()) throw new NoSuchElementException();
+                return new Row(UserTable.this, next++);
+            }
+        };
+    }
+
+    /**
+     * Только для чтения; записи UserEntry создаются при обходе, contains — через {@link #contains(UserEntry)}.
+     */
+    public Set<UserEntry> asSet() {
+        return new SetView(this);
+    }
+
+    /**
+     * Строки для отчёта: у набора из {@link #asSet()} — прямо из колонок, у любого другого — его записи.
+     */
+    public static Iterable<? extends UserRow> rowsOf(Collection<UserEntry> entries) {
+        return entries instanceof SetView view ? view.table.rows() : entries;
+    }
+
+    /**
+     * Таблица, на которой построен набор, или null, если набор — не {@link #asSet()}.
+     */
+    public static UserTable backing(Collection<UserEntry> entries) {
+        return entries instanceof SetView view ? view.table : null;
+    }
+
+    private record Row(UserTable table, int index) implements UserRow {
+        @Override
+        public String username() {
+            return table.username(index);
+        }
+
+        @Override
+        public String displayName() {
+            return table.displayName(index);
+        }
+
+        @Override
+        public String link() {
+            return table.link(index);
+        }
+    }
+
+    private static final class SetView extends AbstractSet<UserEntry> {
+        private final UserTable table;
+
+        SetView(UserTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof UserEntry u && table.contains(u);
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<UserEntry> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < table.size();
+                }
+
+                @Override
+                public UserEntry next() {
+                    if (next >= table.size()) throw new NoSuchElementException();
+                    int i = next++;
+                    return new UserEntry(table.username(i), table.displayName(i), table.link(i));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.core.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream поверх отображённого в память файла ({@link FileChannel#map}).
+ *
+ * Байты читаются прямо из page cache в буфер Jackson — без read()-вызовов и без промежуточного
+ * буфера BufferedInputStream. Файлы больше 2 ГБ отображаются окнами по {@link #WINDOW} байт.
+ *
+ * Снять отображение явно в Java нельзя: память освобождается, когда буфер соберёт GC.
+ * На Linux это не мешает удалить файл сразу после разбора.
+ */
+final class MappedInputStream extends InputStream {
+
+    static final long WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final long window;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer buf;
+
+    MappedInputStream(Path file) throws IOException {
+        this(file, WINDOW);
+    }
+
+    /**
+     * @param window размер окна отображения (в тестах — маленький, чтобы проверить переходы между окнами)
+     */
+    MappedInputStream(Path file, long window) throws IOException {
+        this.window = window;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) return -1;
+        return buf.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!ensureRemaining()) return -1;
+        int n = Math.min(len, buf.remaining());
+        buf.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        long pos = Math.min(size, windowStart + buf.position() + n);
+        long skipped = pos - (windowStart + buf.position());
+        if (pos < windowStart + buf.limit()) {
+            buf.position((int) (pos - windowStart));
+        } else {
+            map(pos);
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buf.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean ensureRemaining() throws IOException {
+        if (buf.hasRemaining()) return true;
+        long next = windowStart + buf.limit();
+        if (next >= size) return false;
+        map(next);
+        return true;
+    }
+
+    private void map(long from) throws IOException {
+        windowStart = from;
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(window, size - from));
+    }
+}
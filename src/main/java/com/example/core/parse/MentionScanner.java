@@ -0,0 +1,124 @@
+package com.example.core.parse;
+
+/**
+ * Однопроходный сканер @username и t.me/&lt;name&gt; без regex.
+ *
+ * Повторяет правила прежних выражений парсера:
+ * - упоминание: {@code (?<!\w)@([A-Za-z0-9_]{3,})} — перед "@" не должно быть буквы/цифры/"_";
+ * - ссылка: {@code (?i)(?:https?://)?t\.me/(?:s/)?([A-Za-z0-9_]{3,})(?:\b|/|\?)} — "t.me/" без учёта регистра,
+ *   необязательный префикс "s/", имя берётся жадно до первого символа не из [A-Za-z0-9_].
+ *
+ * Сам сканер ничего не аллоцирует: найденные токены отдаются в {@link Sink} как диапазон исходного текста.
+ * Фрагменты текста (массив "text") можно сканировать по отдельности — результат такой же, как при склейке
+ * через пробел: пробел и так разрывает токены и удовлетворяет lookbehind.
+ */
+final class MentionScanner {
+    private MentionScanner() {}
+
+    private static final int MIN_NAME_LENGTH = 3;
+
+    /**
+     * Получатель найденных токенов. [start, end) — имя без "@" / без "t.me/".
+     */
+    interface Sink {
+        void mention(CharSequence text, int start, int end);
+
+        void channel(CharSequence text, int start, int end);
+    }
+
+    /**
+     * Все упоминания и все t.me-ссылки за один проход.
+     */
+    static void scan(CharSequence text, Sink sink) {
+        if (text == null) return;
+        int n = text.length();
+        int mentionFrom = 0;  // как у Matcher.find(): следующее совпадение ищется после конца предыдущего
+        int channelFrom = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '@' && i >= mentionFrom) {
+                int end = mentionEnd(text, i);
+                if (end > 0) {
+                    sink.mention(text, i + 1, end);
+                    mentionFrom = end;
+                }
+            } else if ((c == 't' || c == 'T') && i >= channelFrom) {
+                int start = channelNameStart(text, i);
+                if (start > 0) {
+                    int end = wordEnd(text, start);
+                    sink.channel(text, start, end);
+                    channelFrom = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Первое упоминание в тексте (без "@") или null.
+     */
+    static String firstMention(CharSequence text) {
+        if (text == null) return null;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (text.charAt(i) == '@') {
+                int end = mentionEnd(text, i);
+                if (end > 0) return text.subSequence(i + 1, end).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Имя из первой t.me-ссылки в тексте или null.
+     */
+    static String firstChannel(CharSequence text) {
+        if (text == null) return null;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == 't' || c == 'T') {
+                int start = channelNameStart(text, i);
+                if (start > 0) return text.subSequence(start, wordEnd(text, start)).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Конец имени для "@" в позиции at, либо -1, если здесь нет упоминания.
+     */
+    private static int mentionEnd(CharSequence text, int at) {
+        if (at > 0 && isWordChar(text.charAt(at - 1))) return -1;
+        int end = wordEnd(text, at + 1);
+        return end - (at + 1) >= MIN_NAME_LENGTH ? end : -1;
+    }
+
+    /**
+     * Начало имени для "t.me/" в позиции at, либо -1, если здесь нет подходящей ссылки.
+     */
+    private static int channelNameStart(CharSequence text, int at) {
+        int n = text.length();
+        int p = at + 5;
+        if (p > n
+                || text.charAt(at + 1) != '.'
+                || (text.charAt(at + 2) | 0x20) != 'm'
+                || (text.charAt(at + 3) | 0x20) != 'e'
+                || text.charAt(at + 4) != '/') {
+            return -1;
+        }
+        // "s/" — префикс превью канала; без него имя "s" короче минимума, так что второй вариант не нужен
+        if (p + 1 < n && (text.charAt(p) | 0x20) == 's' && text.charAt(p + 1) == '/') {
+            p += 2;
+        }
+        return wordEnd(text, p) - p >= MIN_NAME_LENGTH ? p : -1;
+    }
+
+    private static int wordEnd(CharSequence text, int from) {
+        int i = from;
+        int n = text.length();
+        while (i < n && isWordChar(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.core.parse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Структурный проход по байтам экспорта: находит массивы "messages" верхнего уровня и режет их
+ * на диапазоны по границам сообщений (запятая на глубине самого массива, вне строк).
+ *
+ * JSON не разбирается — отслеживаются только строки (с экранированием), скобки и ключи корневого объекта,
+ * поэтому проход в разы быстрее токенизации Jackson. Диапазон — содержимое массива без внешних скобок
+ * и без разделяющих запятых: "[" + диапазон + "]" снова валидный JSON-массив сообщений.
+ */
+final class MessageChunks {
+    private MessageChunks() {}
+
+    private static final byte[] MESSAGES = {'m', 'e', 's', 's', 'a', 'g', 'e', 's'};
+
+    /**
+     * [start, end) в байтах буфера.
+     */
+    record Range(int start, int end) {
+        int length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * @param targetChunkBytes примерный размер диапазона: режем на первой границе сообщения после него
+     * @return диапазоны всех массивов "messages" по порядку или null, если структура не распознана
+     *         (не объект в корне, обрыв файла, несбалансированные скобки) — тогда разбирать последовательно
+     */
+    static List<Range> split(ByteBuffer buf, int targetChunkBytes) {
+        int n = buf.limit();
+        int i = skipBomAndWhitespace(buf);
+        if (i >= n || buf.get(i) != '{') return null;
+
+        List<Range> ranges = new ArrayList<>();
+        int depth = 0;
+        int keyStart = -1;
+        int keyEnd = -1;
+        boolean messagesKey = false;
+        for (; i < n; i++) {
+            byte b = buf.get(i);
+            switch (b) {
+                case '"' -> {
+                    int end = stringEnd(buf, i + 1);
+                    if (end < 0) return null;
+                    keyStart = i + 1;
+                    keyEnd = end;
+                    i = end;
+                }
+                case ':' -> {
+                    if (depth == 1) messagesKey = equalsAscii(buf, keyStart, keyEnd, MESSAGES);
+                }
+                case ',' -> {
+                    if (depth == 1) messagesKey = false;
+                }
+                case '{' -> depth++;
+                case '[' -> {
+                    if (depth == 1 && messagesKey) {
+                        i = splitArray(buf, i, targetChunkBytes, ranges);
+                        if (i < 0) return null;
+                    } else {
+                        depth++;
+                    }
+                }
+                case '}', ']' -> {
+                    if (--depth < 0) return null;
+                    if (depth == 0) {
+                        return skipWhitespace(buf, i + 1) == n ? ranges : null;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Режет массив, открытый в позиции open. Возвращает позицию закрывающей "]" или -1.
+     */
+    private static int splitArray(ByteBuffer buf, int open, int targetChunkBytes, List<Range> ranges) {
+        int n = buf.limit();
+        int depth = 0;
+        int chunkStart = open + 1;
+        for (int i = open + 1; i < n; i++) {
+            byte b = buf.get(i);
+            switch (b) {
+                case '"' -> {
+                    i = stringEnd(buf, i + 1);
+                    if (i < 0) return -1;
+                }
+                case '{', '[' -> depth++;
+                case '}' -> {
+                    if (--depth < 0) return -1;
+                }
+                case ']' -> {
+                    if (depth == 0) {
+                        ranges.add(new Range(chunkStart, i));
+                        return i;
+                    }
+                    depth--;
+                }
+                case ',' -> {
+                    if (depth == 0 && i - chunkStart >= targetChunkBytes) {
+                        ranges.add(new Range(chunkStart, i));
+                        chunkStart = i + 1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Позиция закрывающей кавычки строки, начатой с from, или -1.
+     */
+    private static int stringEnd(ByteBuffer buf, int from) {
+        int n = buf.limit();
+        for (int i = from; i < n; i++) {
+            byte b = buf.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsAscii(ByteBuffer buf, int start, int end, byte[] expected) {
+        if (start < 0 || end - start != expected.length) return false;
+        for (int k = 0; k < expected.length; k++) {
+            if (buf.get(start + k) != expected[k]) return false;
+        }
+        return true;
+    }
+
+    private static int skipBomAndWhitespace(ByteBuffer buf) {
+        int i = 0;
+        if (buf.limit() >= 3 && buf.get(0) == (byte) 0xEF && buf.get(1) == (byte) 0xBB && buf.get(2) == (byte) 0xBF) {
+            i = 3;
+        }
+        return skipWhitespace(buf, i);
+    }
+
+    private static int skipWhitespace(ByteBuffer buf, int from) {
+        int i = from;
+        int n = buf.limit();
+        while (i < n) {
+            byte b = buf.get(i);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') break;
+            i++;
+        }
+        return i;
+    }
+}
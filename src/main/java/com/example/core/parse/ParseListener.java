@@ -0,0 +1,36 @@
+package com.example.core.parse;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+
+/**
+ * Наблюдатель разбора, которому важен размер результата ещё до конца файла.
+ *
+ * Пока уникальных участников не больше порога, разбор копит результат как обычно и слушателя не зовёт.
+ * Как только порог пройден — {@link #thresholdPassed(ResultBundle)} с уже найденным, после этого каждая новая
+ * уникальная запись сразу уходит слушателю, а разбор хранит только ключи дедупа. Итог разбора — записи,
+ * которые слушателю не отдавались: весь результат, если порог не пройден, иначе пустые наборы.
+ *
+ * Записи приходят в порядке первого появления, из потока разбора. Так же слушателя зовёт
+ * {@link com.example.core.ResultAccumulator} с порогом — при слиянии нескольких файлов.
+ */
+public interface ParseListener {
+
+    /**
+     * Участников стало больше порога. Наборы soFar читаются только во время вызова: затем разбор их отпускает.
+     */
+    void thresholdPassed(ResultBundle soFar);
+
+    void participant(UserEntry u);
+
+    void mention(UserEntry u);
+
+    void channel(UserEntry u);
+
+    /**
+     * Разбор дошёл до конца (только если порог был пройден).
+     *
+     * @param uniqueUsers разных пользователей среди участников и упоминаний всего файла
+     */
+    void finished(int uniqueUsers);
+}
@@ -0,0 +1,49 @@
+package com.example.core.parse;
+
+import com.example.core.model.ResultBundle;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Каким способом разбирать скачанный файл. Результат у всех режимов одинаковый, отличаются память и время.
+ */
+public enum ParseMode {
+    /**
+     * Дерево всего файла ({@link TelegramJsonExportParser#parse(Path)}): для небольших файлов.
+     */
+    TREE,
+    /**
+     * Потоковый разбор ({@link TelegramJsonExportParser#parseStreaming(Path)}): память не зависит от размера файла.
+     */
+    STREAMING,
+    /**
+     * Параллельный разбор одного большого файла ({@link TelegramJsonExportParser#parseParallel(Path, ForkJoinPool)}).
+     */
+    PARALLEL;
+
+    /**
+     * @param chunkPool пул для кусков PARALLEL; другим режимам не нужен
+     */
+    public ResultBundle parse(Path jsonFile, ForkJoinPool chunkPool) throws IOException {
+        return switch (this) {
+            case TREE -> TelegramJsonExportParser.parse(jsonFile);
+            case STREAMING -> TelegramJsonExportParser.parseStreaming(jsonFile);
+            case PARALLEL -> TelegramJsonExportParser.parseParallel(jsonFile, chunkPool);
+        };
+    }
+
+    /**
+     * То же с порогом участников (см. {@link ParseListener}). PARALLEL собирает куски целиком и слушателя не зовёт:
+     * результат — полный, как у {@link #parse(Path, ForkJoinPool)}.
+     */
+    public ResultBundle parse(Path jsonFile, ForkJoinPool chunkPool, int participantsThreshold,
+                             ParseListener listener) throws IOException {
+        return switch (this) {
+            case TREE -> TelegramJsonExportParser.parse(jsonFile, participantsThreshold, listener);
+            case STREAMING -> TelegramJsonExportParser.parseStreaming(jsonFile, participantsThreshold, listener);
+            case PARALLEL -> TelegramJsonExportParser.parseParallel(jsonFile, chunkPool);
+        };
+    }
+}
@@ -1,155 +1,403 @@
 package com.example.core.parse;
 
-import com.example.core.dedup.Deduplicator;
+import com.example.core.dedup.KeyedUserSet;
+import com.example.core.dedup.UniqueUsers;
 import com.example.core.model.ResultBundle;
 import com.example.core.model.UserEntry;
+import com.example.core.model.UserTable;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedHashSet;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Парсер Telegram Desktop export (JSON).
  * Структура экспорта может отличаться между версиями клиента, поэтому читаем через JsonNode.
+ *
+ * Два режима:
+ * - {@link #parse(Path)} — строит дерево всего файла (просто, но держит весь экспорт в памяти);
+ * - {@link #parseStreaming(Path)} — идёт по токенам Jackson и держит в памяти только текущее сообщение,
+ *   поэтому расход heap не зависит от размера файла. Результат у обоих режимов одинаковый.
+ *
+ * Поиск @username и t.me-ссылок — через {@link MentionScanner} (без regex и без склейки фрагментов текста).
+ *
+ * Последовательные режимы принимают {@link ParseListener}: когда уникальных участников становится больше порога,
+ * дальнейшие записи уходят слушателю (например, сразу в Excel), а не копятся в результате.
  */
 public final class TelegramJsonExportParser {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private static final Pattern MENTION_RE = Pattern.compile("(?<!\\w)@([A-Za-z0-9_]{3,})");
-    private static final Pattern TME_RE = Pattern.compile("(?i)(?:https?://)?t\\.me/(?:s/)?([A-Za-z0-9_]{3,})(?:\\b|/|\\?)");
+    // параллельный разбор: кусков на поток (для балансировки) и минимальный размер куска
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final byte[] OPEN_ARRAY = {'['};
+    private static final byte[] CLOSE_ARRAY = {']'};
 
     private TelegramJsonExportParser() {}
 
     public static ResultBundle parse(Path jsonFile) throws IOException {
+        return parse(jsonFile, new Accumulator());
+    }
+
+    /**
+     * Разбор деревом с порогом участников: см. {@link ParseListener}.
+     */
+    public static ResultBundle parse(Path jsonFile, int participantsThreshold, ParseListener listener) throws IOException {
+        return parse(jsonFile, new Accumulator(participantsThreshold, listener));
+    }
+
+    private static ResultBundle parse(Path jsonFile, Accumulator acc) throws IOException {
         JsonNode root;
         try (var in = Files.newInputStream(jsonFile)) {
             root = MAPPER.readTree(in);
         }
 
-        Set<UserEntry> participants = new LinkedHashSet<>();
-        Set<UserEntry> mentions = new LinkedHashSet<>();
-        Set<UserEntry> channels = new LinkedHashSet<>();
-
         JsonNode messages = root.get("messages");
         if (messages != null && messages.isArray()) {
             for (JsonNode msg : messages) {
-                extractAuthor(msg, participants);
-                extractMentions(msg, mentions, channels);
+                extractAuthor(msg, acc);
+                extractMentions(msg, acc);
             }
         }
 
-        // Дедуп + фильтр deleted
-        participants = Deduplicator.dedup(participants).stream()
-                .filter(u -> !Deduplicator.isDeletedAccount(u))
-                .collect(java.util.stream.Collectors.toCollection(LinkedHashSet::new));
-        mentions = Deduplicator.dedup(mentions).stream()
-                .filter(u -> !Deduplicator.isDeletedAccount(u))
-                .collect(java.util.stream.Collectors.toCollection(LinkedHashSet::new));
-        channels = Deduplicator.dedup(channels).stream()
-                .collect(java.util.stream.Collectors.toCollection(LinkedHashSet::new));
+        return acc.finish();
+    }
+
+    public static ResultBundle parseStreaming(Path jsonFile) throws IOException {
+        try (var in = Files.newInputStream(jsonFile)) {
+            return parseStreaming(in);
+        }
+    }
+
+    public static ResultBundle parseStreaming(Path jsonFile, int participantsThreshold, ParseListener listener)
+            throws IOException {
+        try (var in = Files.newInputStream(jsonFile)) {
+            return parseStreaming(in, participantsThreshold, listener);
+        }
+    }
+
+    /**
+     * Потоковый разбор файла, отображённого в память (mmap): то же, что {@link #parseStreaming(Path)},
+     * но байты идут в Jackson прямо из page cache, без системных read() и лишнего копирования через буферы потока.
+     */
+    public static ResultBundle parseMapped(Path jsonFile) throws IOException {
+        try (var in = new MappedInputStream(jsonFile)) {
+            return parseStreaming(in);
+        }
+    }
 
-        return new ResultBundle(participants, mentions, channels);
+    /**
+     * Параллельный разбор одного большого экспорта: файл отображается в память, массив "messages"
+     * режется по границам сообщений ({@link MessageChunks}), куски разбираются потоково на pool,
+     * а их наборы сливаются строго по порядку кусков. Итог совпадает с последовательным разбором,
+     * включая порядок первого появления: ключ в общем наборе занимает первый по порядку кусок,
+     * в том числе «надгробием» удалённого аккаунта.
+     *
+     * pool — отдельный пул ограниченного размера (в приложении — {@code ProcessingExecutors.chunkPool()}),
+     * не общий ForkJoinPool: несколько больших файлов сразу не должны занимать все ядра JVM.
+     *
+     * Файл больше 2 ГБ или нераспознанная структура — последовательный {@link #parseMapped(Path)}
+     * (он же выдаст ту же ошибку формата, что и обычный разбор).
+     */
+    public static ResultBundle parseParallel(Path jsonFile, ForkJoinPool pool) throws IOException {
+        return parseParallel(jsonFile, pool, 0);
     }
 
-    private static void extractAuthor(JsonNode msg, Set<UserEntry> participants) {
+    /**
+     * @param targetChunkBytes размер куска; 0 — по размеру файла и параллелизму пула (в тестах — маленький)
+     */
+    static ResultBundle parseParallel(Path jsonFile, ForkJoinPool pool, int targetChunkBytes) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return parseMapped(jsonFile);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (targetChunkBytes <= 0) {
+            targetChunkBytes = (int) Math.max(MIN_CHUNK_BYTES, buf.limit() / ((long) pool.getParallelism() * CHUNKS_PER_WORKER));
+        }
+        List<MessageChunks.Range> ranges = MessageChunks.split(buf, targetChunkBytes);
+        if (ranges == null) return parseMapped(jsonFile);
+
+        List<ForkJoinTask<Accumulator>> chunks = new ArrayList<>(ranges.size());
+        for (MessageChunks.Range range : ranges) {
+            ByteBuffer slice = buf.slice(range.start(), range.length());
+            chunks.add(pool.submit(() -> parseChunk(slice)));
+        }
+
+        Accumulator acc = new Accumulator();
+        try {
+            for (ForkJoinTask<Accumulator> chunk : chunks) {
+                acc.merge(chunk.join());
+            }
+        } catch (RuntimeException e) {
+            chunks.forEach(c -> c.cancel(false));
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof IOException io) throw io;
+            }
+            throw e;
+        }
+        return acc.finish();
+    }
+
+    /**
+     * Кусок массива сообщений без скобок разбираем как "[" + кусок + "]".
+     */
+    private static Accumulator parseChunk(ByteBuffer slice) {
+        Accumulator acc = new Accumulator();
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(OPEN_ARRAY), new ByteBufferInputStream(slice), new ByteArrayInputStream(CLOSE_ARRAY))));
+        try (JsonParser p = MAPPER.getFactory().createParser(in)) {
+            if (p.nextToken() == JsonToken.START_ARRAY) {
+                readMessages(p, acc);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return acc;
+    }
+
+    /**
+     * Потоковый разбор: из каждого сообщения достаём только "from", "text" и "text_entities",
+     * всё остальное пропускаем через skipChildren(), не материализуя.
+     */
+    public static ResultBundle parseStreaming(InputStream in) throws IOException {
+        return parseStreaming(in, new Accumulator());
+    }
+
+    /**
+     * Потоковый разбор с порогом участников: после порога в памяти остаются только ключи дедупа,
+     * записи уходят слушателю (см. {@link ParseListener}).
+     */
+    public static ResultBundle parseStreaming(InputStream in, int participantsThreshold, ParseListener listener)
+            throws IOException {
+        return parseStreaming(in, new Accumulator(participantsThreshold, listener));
+    }
+
+    private static ResultBundle parseStreaming(InputStream in, Accumulator acc) throws IOException {
+        try (JsonParser p = MAPPER.getFactory().createParser(in)) {
+            if (p.nextToken() == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken value = p.nextToken();
+                    if ("messages".equals(field) && value == JsonToken.START_ARRAY) {
+                        readMessages(p, acc);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return acc.finish();
+    }
+
+    private static void readMessages(JsonParser p, Accumulator acc) throws IOException {
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+            if (t != JsonToken.START_OBJECT) {
+                // не-объекты в messages дерево-путь тоже игнорирует
+                p.skipChildren();
+                continue;
+            }
+
+            String from = null;
+            JsonNode text = null;
+            JsonNode entities = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "from" -> {
+                        // как JsonNode.asText(null): скаляры в строку, null и вложенные структуры — пропускаем
+                        from = value.isScalarValue() && value != JsonToken.VALUE_NULL ? p.getText() : null;
+                        p.skipChildren();
+                    }
+                    // text и text_entities маленькие — читаем их поддерево целиком
+                    case "text" -> text = MAPPER.readTree(p);
+                    case "text_entities" -> entities = MAPPER.readTree(p);
+                    default -> p.skipChildren();
+                }
+            }
+
+            addAuthor(from, acc);
+            extractMentions(entities, text, acc);
+        }
+    }
+
+    private static void extractAuthor(JsonNode msg, Accumulator acc) {
         if (msg == null || !msg.isObject()) return;
         // Telegram export commonly uses "from" as display name
-        String from = asText(msg.get("from"));
+        addAuthor(asText(msg.get("from")), acc);
+    }
+
+    private static void addAuthor(String from, Accumulator acc) {
         if (from == null || from.isBlank()) return;
         // Sometimes "from" may contain @username; try to parse it
-        String username = null;
-        Matcher m = MENTION_RE.matcher(from);
-        if (m.find()) {
-            username = m.group(1);
-        }
-        String link = username != null ? "https://t.me/" + username : null;
-        participants.add(new UserEntry(username, from, link));
+        String username = MentionScanner.firstMention(from);
+        String link = username != null ? UserTable.LINK_PREFIX + username : null;
+        acc.addParticipant(new UserEntry(username, from, link));
+    }
+
+    private static void extractMentions(JsonNode msg, Accumulator acc) {
+        extractMentions(msg.get("text_entities"), msg.get("text"), acc);
     }
 
-    private static void extractMentions(JsonNode msg, Set<UserEntry> mentions, Set<UserEntry> channels) {
+    private static void extractMentions(JsonNode entities, JsonNode text, Accumulator acc) {
         // 1) structured entities (text_entities)
-        JsonNode entities = msg.get("text_entities");
         if (entities != null && entities.isArray()) {
             for (JsonNode ent : entities) {
-                String type = asText(ent.get("type"));
-                if (type == null) continue;
-                if ("mention".equals(type)) {
-                    String t = asText(ent.get("text"));
-                    addMentionFromText(t, mentions);
-                } else if ("text_link".equals(type)) {
-                    String href = asText(ent.get("href"));
-                    addTmeFromUrl(href, channels);
-                }
+                addStructured(ent, acc);
             }
         }
 
         // 2) text field can be string or array
-        JsonNode text = msg.get("text");
         if (text == null) return;
         if (text.isTextual()) {
-            extractByRegex(text.asText(""), mentions, channels);
+            MentionScanner.scan(text.asText(""), acc);
         } else if (text.isArray()) {
-            StringBuilder combined = new StringBuilder();
+            // Сначала структурные части (mention/text_link), затем текст всех фрагментов —
+            // тот же порядок появления, что и при прежней склейке фрагментов в одну строку.
+            for (JsonNode part : text) {
+                if (part.isObject()) {
+                    addStructured(part, acc);
+                }
+            }
             for (JsonNode part : text) {
                 if (part.isTextual()) {
-                    combined.append(part.asText("")).append(' ');
+                    MentionScanner.scan(part.asText(""), acc);
                 } else if (part.isObject()) {
-                    String type = asText(part.get("type"));
-                    String t = asText(part.get("text"));
-                    if (t != null) combined.append(t).append(' ');
-
-                    if ("mention".equals(type)) {
-                        addMentionFromText(t, mentions);
-                    } else if ("text_link".equals(type)) {
-                        String href = asText(part.get("href"));
-                        addTmeFromUrl(href, channels);
-                    }
+                    MentionScanner.scan(asText(part.get("text")), acc);
                 }
             }
-            extractByRegex(combined.toString(), mentions, channels);
         }
     }
 
-    private static void extractByRegex(String text, Set<UserEntry> mentions, Set<UserEntry> channels) {
-        if (text == null || text.isBlank()) return;
-        Matcher m = MENTION_RE.matcher(text);
-        while (m.find()) {
-            String username = m.group(1);
-            mentions.add(new UserEntry(username, null, "https://t.me/" + username));
-        }
-        Matcher t = TME_RE.matcher(text);
-        while (t.find()) {
-            String name = t.group(1);
-            channels.add(new UserEntry(name, null, "https://t.me/" + name));
+    private static void addStructured(JsonNode ent, Accumulator acc) {
+        String type = asText(ent.get("type"));
+        if (type == null) return;
+        if ("mention".equals(type)) {
+            acc.addMention(MentionScanner.firstMention(asText(ent.get("text"))));
+        } else if ("text_link".equals(type)) {
+            acc.addChannel(MentionScanner.firstChannel(asText(ent.get("href"))));
         }
     }
 
-    private static void addMentionFromText(String t, Set<UserEntry> mentions) {
-        if (t == null) return;
-        Matcher m = MENTION_RE.matcher(t);
-        if (m.find()) {
-            String username = m.group(1);
-            mentions.add(new UserEntry(username, null, "https://t.me/" + username));
-        }
+    private static String asText(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        return node.asText(null);
     }
 
-    private static void addTmeFromUrl(String url, Set<UserEntry> channels) {
-        if (url == null) return;
-        Matcher m = TME_RE.matcher(url);
-        if (m.find()) {
-            String name = m.group(1);
-            channels.add(new UserEntry(name, null, "https://t.me/" + name));
+    /**
+     * Наборы, накапливаемые за один разбор файла. Он же — приёмник токенов для {@link MentionScanner}.
+     */
+    private static final class Accumulator implements MentionScanner.Sink {
+        // дедуп по ключу и отсев удалённых аккаунтов — сразу при добавлении
+        private final KeyedUserSet participants = KeyedUserSet.withoutDeleted();
+        private final KeyedUserSet mentions = KeyedUserSet.withoutDeleted();
+        private final KeyedUserSet channels = new KeyedUserSet();
+        // после порога записи уходят слушателю, а в наборах остаются только ключи
+        private final int threshold;
+        private final ParseListener listener;
+        private boolean released;
+        private int uniqueUsers;
+
+        Accumulator() {
+            this(Integer.MAX_VALUE, null);
         }
-    }
 
-    private static String asText(JsonNode node) {
-        if (node == null || node.isNull()) return null;
-        return node.asText(null);
+        Accumulator(int threshold, ParseListener listener) {
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+
+        @Override
+        public void mention(CharSequence text, int start, int end) {
+            addMention(text.subSequence(start, end).toString());
+        }
+
+        @Override
+        public void channel(CharSequence text, int start, int end) {
+            addChannel(text.subSequence(start, end).toString());
+        }
+
+        void addParticipant(UserEntry u) {
+            String key = u.key();
+            if (!participants.add(u, key)) return;
+            if (released) {
+                if (!mentions.hasEntry(key)) uniqueUsers++;
+                listener.participant(u);
+            } else if (listener != null && participants.size() > threshold) {
+                release();
+            }
+        }
+
+        // повторное упоминание (обычный случай) отсекается по ключу, до создания записи и строки ссылки;
+        // у записи с непустым username ключ тот же, что и без ссылки
+        void addMention(String username) {
+            String key = username == null ? null : UserEntry.keyOf(username, null, null);
+            if (key == null || mentions.containsKey(key)) return;
+            UserEntry u = new UserEntry(username, null, UserTable.LINK_PREFIX + username);
+            if (mentions.add(u, key) && released) {
+                if (!participants.hasEntry(key)) uniqueUsers++;
+                listener.mention(u);
+            }
+        }
+
+        void addChannel(String name) {
+            String key = name == null ? null : UserEntry.keyOf(name, null, null);
+            if (key == null || channels.containsKey(key)) return;
+            UserEntry u = new UserEntry(name, null, UserTable.LINK_PREFIX + name);
+            if (channels.add(u, key) && released) {
+                listener.channel(u);
+            }
+        }
+
+        /**
+         * Порог пройден: найденное — слушателю, дальше наборы держат только ключи.
+         */
+        private void release() {
+            listener.thresholdPassed(new ResultBundle(Collections.unmodifiableSet(participants),
+                    Collections.unmodifiableSet(mentions), Collections.unmodifiableSet(channels)));
+            uniqueUsers = UniqueUsers.count(participants, mentions);
+            participants.keepKeysOnly();
+            mentions.keepKeysOnly();
+            channels.keepKeysOnly();
+            released = true;
+        }
+
+        /**
+         * Дописывает наборы следующего по порядку куска (вместе с занятыми «надгробиями» ключами).
+         */
+        void merge(Accumulator next) {
+            participants.merge(next.participants);
+            mentions.merge(next.mentions);
+            channels.merge(next.channels);
+        }
+
+        ResultBundle finish() {
+            if (released) {
+                listener.finished(uniqueUsers);
+            }
+            return new ResultBundle(participants, mentions, channels);
+        }
     }
 }
@@ -7,11 +7,14 @@ public final class Constants {
     public static final int MAX_FILES = 10;
     public static final int SESSION_TTL_MINUTES = 30;
     public static final int TEXT_THRESHOLD_MAX = 50; // <=50 -> text, >=51 -> Excel
+    public static final int EXCEL_STREAMING_MIN_ROWS = 10_000; // с этого числа строк Excel пишется потоково (SXSSF)
+    public static final int FILES_IN_FLIGHT = 4; // файлов одной обработки в работе, пока результаты забираются по порядку
 
     // Callback data
     public static final String CB_EXPORT_HELP = "EXPORT_HELP";
     public static final String CB_FAQ = "FAQ";
     public static final String CB_START_PROCESS = "START_PROCESS";
+    public static final String CB_START_PROCESS_MERGED = "START_PROCESS_MERGED";
     public static final String CB_PROCESS_OTHER = "PROCESS_OTHER";
     public static final String CB_RESTART = "RESTART";
 }
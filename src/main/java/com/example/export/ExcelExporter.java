@@ -2,7 +2,10 @@ package com.example.export;
 
 import com.example.core.model.ResultBundle;
 import com.example.core.model.UserEntry;
+import com.example.core.model.UserRow;
+import com.example.core.model.UserTable;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.IOException;
@@ -14,6 +17,7 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Экспорт результата в Excel.
@@ -50,127 +54,199 @@ public final class ExcelExporter {
             "Наличие канала"
     );
 
+    // Сколько строк SXSSF держит в памяти, остальные уже сброшены на диск
+    static final int ROW_WINDOW = 200;
+    private static final int MAX_COLUMN_WIDTH = 12000;
+
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter
             .ofPattern("yyyy-MM-dd HH:mm:ss")
             .withZone(ZoneOffset.UTC);
 
     public static Path export(ResultBundle result, Path outputDir) throws IOException {
+        try (Workbook wb = new XSSFWorkbook()) {
+            return write(wb, result, outputDir, true);
+        }
+    }
+
+    /**
+     * Потоковый вариант для больших списков: SXSSF держит в памяти только окно из {@link #ROW_WINDOW} строк,
+     * остальное сбрасывается во временный файл. Ширина колонок — по оценке длины строк, без autoSizeColumn
+     * (он требует всех строк в памяти и дорогого измерения шрифтов). Вкладки, колонки и шапка — те же, что у {@link #export}.
+     */
+    public static Path exportStreaming(ResultBundle result, Path outputDir) throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+        try {
+            return write(wb, result, outputDir, false);
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    private static Path write(Workbook wb, ResultBundle result, Path outputDir, boolean autosize) throws IOException {
         Files.createDirectories(outputDir);
         Path out = outputDir.resolve("participants.xlsx");
 
-        try (Workbook wb = new XSSFWorkbook()) {
-            CellStyle headerStyle = createHeaderStyle(wb);
-
-            writeParticipantsSheet(wb, result.participants(), headerStyle);
-            writeMentionsSheet(wb, result.mentions(), headerStyle);
-            writeChannelsSheet(wb, result.channels(), headerStyle);
+        CellStyle headerStyle = createHeaderStyle(wb);
 
-            try (OutputStream os = Files.newOutputStream(out)) {
-                wb.write(os);
-            }
-        }
+        writeSheet(participantsSheet(wb, headerStyle), result.participants(), autosize);
+        writeSheet(mentionsSheet(wb, headerStyle), result.mentions(), autosize);
+        writeSheet(channelsSheet(wb, headerStyle), result.channels(), autosize);
 
+        write(wb, out);
         return out;
     }
 
-    private static void writeParticipantsSheet(Workbook wb, Collection<UserEntry> rows, CellStyle headerStyle) {
-        Sheet sheet = wb.createSheet("Участники");
-        String exportAt = DATE_FMT.format(Instant.now());
-
-        writeMeta(sheet, exportAt);
-        writeHeader(sheet, HEADER_PARTICIPANTS, headerStyle);
-
-        int r = 3;
-        for (UserEntry u : rows) {
-            Row row = sheet.createRow(r++);
-            row.createCell(0).setCellValue(exportAt);
-            row.createCell(1).setCellValue(u.displayName() != null ? u.displayName() : "");
-            row.createCell(2).setCellValue("");
-            row.createCell(3).setCellValue("");
-            row.createCell(4).setCellValue("");
+    static void write(Workbook wb, Path out) throws IOException {
+        try (OutputStream os = Files.newOutputStream(out)) {
+            wb.write(os);
         }
+    }
 
-        autosizeAndFreeze(sheet, HEADER_PARTICIPANTS.size());
+    private static void writeSheet(SheetWriter sheet, Collection<UserEntry> rows, boolean autosize) {
+        sheet.appendAll(rows);
+        sheet.finish(autosize);
     }
 
-    private static void writeMentionsSheet(Workbook wb, Collection<UserEntry> rows, CellStyle headerStyle) {
-        Sheet sheet = wb.createSheet("Упоминания");
-        String exportAt = DATE_FMT.format(Instant.now());
+    static SheetWriter participantsSheet(Workbook wb, CellStyle headerStyle) {
+        return new SheetWriter(wb, "Участники", HEADER_PARTICIPANTS, ExcelExporter::participantValue, headerStyle);
+    }
 
-        writeMeta(sheet, exportAt);
-        writeHeader(sheet, HEADER_MENTIONS, headerStyle);
+    static SheetWriter mentionsSheet(Workbook wb, CellStyle headerStyle) {
+        return new SheetWriter(wb, "Упоминания", HEADER_MENTIONS, ExcelExporter::mentionValue, headerStyle);
+    }
 
-        int r = 3;
-        for (UserEntry u : rows) {
-            Row row = sheet.createRow(r++);
-            row.createCell(0).setCellValue(exportAt);
+    static SheetWriter channelsSheet(Workbook wb, CellStyle headerStyle) {
+        return new SheetWriter(wb, "Каналы", HEADER_CHANNELS, ExcelExporter::channelValue, headerStyle);
+    }
 
-            // Для mentions ожидаем username; если вдруг null — оставим пусто
-            String username = u.username();
-            row.createCell(1).setCellValue(username != null ? "@" + username : "");
+    /**
+     * Вкладка, в которую строки дописываются по одной: мета-строка и шапка — сразу, ширина колонок и
+     * закреплённая шапка — в {@link #finish(boolean)}.
+     */
+    static final class SheetWriter {
+        private static final int FIRST_ROW = 3;
+
+        private final Sheet sheet;
+        private final int columns;
+        private final Function<UserRow, String> value;
+        private final String exportAt = DATE_FMT.format(Instant.now());
+        private final ColumnWidths widths;
+        private int next = FIRST_ROW;
+
+        SheetWriter(Workbook wb, String name, List<String> header, Function<UserRow, String> value, CellStyle headerStyle) {
+            this.sheet = wb.createSheet(name);
+            this.columns = header.size();
+            this.value = value;
+            this.widths = new ColumnWidths(columns);
+            writeMeta(sheet, exportAt, widths);
+            writeHeader(sheet, header, headerStyle, widths);
+        }
 
+        void append(UserRow u) {
+            Row row = sheet.createRow(next++);
+            String v = value.apply(u);
+            row.createCell(0).setCellValue(exportAt);
+            row.createCell(1).setCellValue(v);
             row.createCell(2).setCellValue("");
             row.createCell(3).setCellValue("");
             row.createCell(4).setCellValue("");
+            widths.observe(0, exportAt);
+            widths.observe(1, v);
         }
 
-        autosizeAndFreeze(sheet, HEADER_MENTIONS.size());
-    }
+        void appendAll(Collection<UserEntry> rows) {
+            // компактный результат читается прямо из колонок, без сборки записей
+            for (UserRow u : UserTable.rowsOf(rows)) {
+                append(u);
+            }
+        }
 
-    private static void writeChannelsSheet(Workbook wb, Collection<UserEntry> rows, CellStyle headerStyle) {
-        Sheet sheet = wb.createSheet("Каналы");
-        String exportAt = DATE_FMT.format(Instant.now());
+        int rows() {
+            return next - FIRST_ROW;
+        }
 
-        writeMeta(sheet, exportAt);
-        writeHeader(sheet, HEADER_CHANNELS, headerStyle);
+        void finish(boolean autosize) {
+            if (autosize) {
+                autosize(sheet, columns);
+            } else {
+                widths.apply(sheet);
+            }
+            sheet.createFreezePane(0, FIRST_ROW);
+        }
+    }
 
-        int r = 3;
-        for (UserEntry u : rows) {
-            Row row = sheet.createRow(r++);
-            row.createCell(0).setCellValue(exportAt);
+    private static String participantValue(UserRow u) {
+        return u.displayName() != null ? u.displayName() : "";
+    }
 
-            // Для channels иногда есть только ссылка (t.me/...), поэтому используем username, а если его нет — link
-            String value = "";
-            if (u.username() != null && !u.username().isBlank()) {
-                value = "@" + u.username();
-            } else if (u.link() != null) {
-                value = u.link();
-            }
-            row.createCell(1).setCellValue(value);
+    private static String mentionValue(UserRow u) {
+        // Для mentions ожидаем username; если вдруг null — оставим пусто
+        String username = u.username();
+        return username != null ? "@" + username : "";
+    }
 
-            row.createCell(2).setCellValue("");
-            row.createCell(3).setCellValue("");
-            row.createCell(4).setCellValue("");
+    private static String channelValue(UserRow u) {
+        // Для channels иногда есть только ссылка (t.me/...), поэтому используем username, а если его нет — link
+        if (u.username() != null && !u.username().isBlank()) {
+            return "@" + u.username();
+        } else if (u.link() != null) {
+            return u.link();
         }
-
-        autosizeAndFreeze(sheet, HEADER_CHANNELS.size());
+        return "";
     }
 
-    private static void writeMeta(Sheet sheet, String exportAt) {
+    private static void writeMeta(Sheet sheet, String exportAt, ColumnWidths widths) {
         Row meta = sheet.createRow(0);
         meta.createCell(0).setCellValue("Дата экспорта");
         meta.createCell(1).setCellValue(exportAt);
+        widths.observe(0, "Дата экспорта");
+        widths.observe(1, exportAt);
     }
 
-    private static void writeHeader(Sheet sheet, List<String> header, CellStyle headerStyle) {
+    private static void writeHeader(Sheet sheet, List<String> header, CellStyle headerStyle, ColumnWidths widths) {
         Row headerRow = sheet.createRow(2);
         for (int i = 0; i < header.size(); i++) {
             Cell c = headerRow.createCell(i);
             c.setCellValue(header.get(i));
             c.setCellStyle(headerStyle);
+            widths.observe(i, header.get(i));
         }
     }
 
-    private static void autosizeAndFreeze(Sheet sheet, int columns) {
+    private static void autosize(Sheet sheet, int columns) {
         for (int i = 0; i < columns; i++) {
             sheet.autoSizeColumn(i);
-            int width = Math.min(sheet.getColumnWidth(i), 12000);
+            int width = Math.min(sheet.getColumnWidth(i), MAX_COLUMN_WIDTH);
             sheet.setColumnWidth(i, width);
         }
-        sheet.createFreezePane(0, 3);
     }
 
-    private static CellStyle createHeaderStyle(Workbook wb) {
+    /**
+     * Дешёвая оценка ширины колонок по максимальной длине строки (в единицах 1/256 символа, как в POI).
+     */
+    private static final class ColumnWidths {
+        private final int[] maxChars;
+
+        ColumnWidths(int columns) {
+            this.maxChars = new int[columns];
+        }
+
+        void observe(int column, String value) {
+            if (value != null && value.length() > maxChars[column]) {
+                maxChars[column] = value.length();
+            }
+        }
+
+        void apply(Sheet sheet) {
+            for (int i = 0; i < maxChars.length; i++) {
+                // +2 символа запаса: жирная шапка и отступы ячейки
+                sheet.setColumnWidth(i, Math.min((maxChars[i] + 2) * 256, MAX_COLUMN_WIDTH));
+            }
+        }
+    }
+
+    static CellStyle createHeaderStyle(Workbook wb) {
         Font font = wb.createFont();
         font.setBold(true);
 
@@ -0,0 +1,124 @@
+package com.example.export;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.example.core.parse.ParseListener;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Excel-отчёт, который пишется по ходу разбора: как только участников больше порога текстового отчёта,
+ * найденное к этому моменту уходит в SXSSF-книгу, а дальше каждая новая запись — сразу в её вкладку.
+ * Весь список в памяти не собирается: разбор держит только ключи дедупа, книга — окно строк.
+ *
+ * Если порог так и не пройден, книга не создаётся ({@link #spilled()} — false), и отчёт строится
+ * по результату разбора как обычно. Вкладки, колонки и шапка — как у {@link ExcelExporter#exportStreaming},
+ * порядок строк — порядок первого появления.
+ *
+ * Один экземпляр — на один разбор; после него — {@link #finish()} (если spilled) и {@link #close()}.
+ */
+public final class ExcelSpillWriter implements ParseListener, Closeable {
+
+    private final Path output;
+    private SXSSFWorkbook wb;
+    private ExcelExporter.SheetWriter participants;
+    private ExcelExporter.SheetWriter mentions;
+    private ExcelExporter.SheetWriter channels;
+    private int uniqueUsers;
+
+    /**
+     * @param output куда записать книгу в {@link #finish()}
+     */
+    public ExcelSpillWriter(Path output) {
+        this.output = output;
+    }
+
+    @Override
+    public void thresholdPassed(ResultBundle soFar) {
+        if (wb != null) {
+            throw new IllegalStateException("Threshold already passed");
+        }
+        wb = new SXSSFWorkbook(ExcelExporter.ROW_WINDOW);
+        CellStyle headerStyle = ExcelExporter.createHeaderStyle(wb);
+        participants = ExcelExporter.participantsSheet(wb, headerStyle);
+        mentions = ExcelExporter.mentionsSheet(wb, headerStyle);
+        channels = ExcelExporter.channelsSheet(wb, headerStyle);
+        participants.appendAll(soFar.participants());
+        mentions.appendAll(soFar.mentions());
+        channels.appendAll(soFar.channels());
+    }
+
+    @Override
+    public void participant(UserEntry u) {
+        participants.append(u);
+    }
+
+    @Override
+    public void mention(UserEntry u) {
+        mentions.append(u);
+    }
+
+    @Override
+    public void channel(UserEntry u) {
+        channels.append(u);
+    }
+
+    @Override
+    public void finished(int uniqueUsers) {
+        this.uniqueUsers = uniqueUsers;
+    }
+
+    /**
+     * Порог пройден — отчёт в книге, а не в результате разбора.
+     */
+    public boolean spilled() {
+        return wb != null;
+    }
+
+    public int participantsCount() {
+        return participants != null ? participants.rows() : 0;
+    }
+
+    public int mentionsCount() {
+        return mentions != null ? mentions.rows() : 0;
+    }
+
+    public int channelsCount() {
+        return channels != null ? channels.rows() : 0;
+    }
+
+    public int uniqueUsers() {
+        return uniqueUsers;
+    }
+
+    /**
+     * Дописывает ширину колонок и шапку и сохраняет книгу.
+     */
+    public Path finish() throws IOException {
+        if (wb == null) {
+            throw new IllegalStateException("Threshold was not passed");
+        }
+        participants.finish(false);
+        mentions.finish(false);
+        channels.finish(false);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        ExcelExporter.write(wb, output);
+        return output;
+    }
+
+    /**
+     * Удаляет временные файлы SXSSF. Записанная книга остаётся.
+     */
+    @Override
+    public void close() throws IOException {
+        if (wb != null) {
+            wb.dispose();
+            wb.close();
+        }
+    }
+}
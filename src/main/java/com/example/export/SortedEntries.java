@@ -0,0 +1,133 @@
+package com.example.export;
+
+import com.example.core.model.UserEntry;
+import com.example.core.model.UserRow;
+import com.example.core.model.UserTable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Отсортированное представление записей для вывода.
+ *
+ * Ключ сортировки считается один раз на запись, а не в каждом сравнении (см. {@link #collationKey(String)}):
+ * без учёта регистра, латиница перед кириллицей, «Ё» рядом с «Е», а не после «Я», как при сравнении по кодам символов.
+ * Для строк только из латиницы, кириллицы русского алфавита и цифр порядок совпадает с {@link java.text.Collator}
+ * русской локали (сила SECONDARY). Пробел, знаки, «_» и эмодзи Collator сравнивает по своим правилам, а здесь —
+ * по коду UTF-16 после перевода в нижний регистр (пробел и знаки ASCII — раньше букв, эмодзи — после кириллицы).
+ * Зато ключ — обычная строка: CollationKey для 300 тыс. записей строится в несколько раз дольше,
+ * чем вся прежняя сортировка.
+ *
+ * Порядок выдаётся лениво: записи лежат в куче (построение — O(n)), каждая следующая запись — O(log n).
+ * Поэтому первые k записей (одна страница отчёта) стоят O(n + k log n), а не полной сортировки. Если прочитано
+ * больше {@link #LAZY_PREFIX} записей, остаток досортировывается целиком: выборка из кучи по одной медленнее
+ * обычной сортировки, и полный проход не должен стоить дороже неё.
+ * При равных ключах сохраняется исходный порядок.
+ */
+public final class SortedEntries {
+
+    // примерно две страницы отчёта по 4096 символов
+    static final int LAZY_PREFIX = 256;
+
+    private record Keyed(String key, int index, UserRow entry) implements Comparable<Keyed> {
+        @Override
+        public int compareTo(Keyed o) {
+            int c = key.compareTo(o.key);
+            return c != 0 ? c : Integer.compare(index, o.index);
+        }
+    }
+
+    private final List<Keyed> keyed;
+
+    private SortedEntries(List<Keyed> keyed) {
+        this.keyed = keyed;
+    }
+
+    /**
+     * @param sortKey строка, по которой сортируется запись (вызывается один раз на запись)
+     */
+    public static SortedEntries of(Collection<UserEntry> entries, Function<UserRow, String> sortKey) {
+        Keyed[] keyed = new Keyed[entries.size()];
+        int i = 0;
+        // у компактного результата — строки таблицы, без сборки записей
+        for (UserRow u : UserTable.rowsOf(entries)) {
+            keyed[i] = new Keyed(collationKey(sortKey.apply(u)), i, u);
+            i++;
+        }
+        return new SortedEntries(List.of(keyed));
+    }
+
+    /**
+     * Ключ, который сравнивается обычным String.compareTo: строка в нижнем регистре, «ё» приравнена к «е».
+     * Если «ё» была, за ключом через \0 идёт исходная строка в нижнем регистре — при прочих равных «е» раньше «ё»
+     * (как второй уровень сравнения у Collator).
+     */
+    static String collationKey(String s) {
+        String lower = s.toLowerCase(Locale.ROOT);
+        String primary = lower.replace('ё', 'е');
+        return primary.equals(lower) ? lower : primary + '\u0000' + lower;
+    }
+
+    public int size() {
+        return keyed.size();
+    }
+
+    public boolean isEmpty() {
+        return keyed.isEmpty();
+    }
+
+    /**
+     * Записи по порядку; сортируется ровно столько, сколько прочитано из потока. Каждый вызов — новый проход.
+     */
+    public Stream<UserRow> stream() {
+        Iterator<UserRow> it = new Iterator<>() {
+            // PriorityQueue(Collection) строит кучу за O(n)
+            private final PriorityQueue<Keyed> heap = new PriorityQueue<>(keyed);
+            private int polled;
+            // досортированный остаток кучи (после LAZY_PREFIX записей)
+            private Keyed[] rest;
+            private int restIndex;
+
+            @Override
+            public boolean hasNext() {
+                return rest != null ? restIndex < rest.length : !heap.isEmpty();
+            }
+
+            @Override
+            public UserRow next() {
+                if (rest == null && polled == LAZY_PREFIX) {
+                    rest = heap.toArray(new Keyed[0]);
+                    heap.clear();
+                    Arrays.sort(rest);
+                }
+                if (rest != null) {
+                    if (restIndex >= rest.length) throw new NoSuchElementException();
+                    return rest[restIndex++].entry();
+                }
+                Keyed next = heap.poll();
+                if (next == null) throw new NoSuchElementException();
+                polled++;
+                return next.entry();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(it, keyed.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * Первые k записей по порядку (частичная сортировка).
+     */
+    public List<UserRow> first(int k) {
+        return stream().limit(k).toList();
+    }
+}
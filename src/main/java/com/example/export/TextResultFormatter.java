@@ -1,11 +1,14 @@
 package com.example.export;
 
 import com.example.core.model.ResultBundle;
-import com.example.core.model.UserEntry;
+import com.example.core.model.UserRow;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Формирует человекочитаемый текстовый результат для Telegram.
@@ -13,6 +16,11 @@ import java.util.List;
  * Важно: "participants" и "mentions" выводятся раздельно (по ТЗ).
  */
 public final class TextResultFormatter {
+    /**
+     * Максимальная длина текста одного сообщения Telegram.
+     */
+    public static final int TELEGRAM_MAX_MESSAGE_CHARS = 4096;
+
     private TextResultFormatter() {}
 
     /**
@@ -26,57 +34,133 @@ public final class TextResultFormatter {
      * Формат для ответа бота (текстом), когда участников <= порога.
      */
     public static String format(List<String> fileNames, ResultBundle result) {
-        List<UserEntry> participants = new ArrayList<>(result.participants());
-        List<UserEntry> mentions = new ArrayList<>(result.mentions());
-
-        participants.sort(Comparator.comparing(TextResultFormatter::participantKey, String.CASE_INSENSITIVE_ORDER));
-        mentions.sort(Comparator.comparing(TextResultFormatter::mentionKey, String.CASE_INSENSITIVE_ORDER));
-
         StringBuilder sb = new StringBuilder();
+        lines(fileNames, result).forEach(line -> sb.append(line).append("\n"));
+        return sb.toString();
+    }
+
+    /**
+     * Тот же отчёт построчно (без "\n"). Строки участников и упоминаний строятся по мере чтения потока,
+     * и сортируются записи тоже по мере чтения ({@link SortedEntries}): первая страница не ждёт полной сортировки.
+     */
+    public static Stream<String> lines(List<String> fileNames, ResultBundle result) {
+        SortedEntries participants = SortedEntries.of(result.participants(), TextResultFormatter::participantKey);
+        SortedEntries mentions = SortedEntries.of(result.mentions(), TextResultFormatter::mentionKey);
 
         // Header
+        List<String> header = new ArrayList<>();
         if (fileNames != null && !fileNames.isEmpty()) {
             if (fileNames.size() == 1) {
-                sb.append("Файл: ").append(fileNames.get(0)).append("\n");
+                header.add("Файл: " + fileNames.get(0));
             } else {
-                sb.append("Файлы: ").append(String.join(", ", fileNames)).append("\n");
+                header.add("Файлы: " + String.join(", ", fileNames));
             }
         }
+        header.add("Количество участников: " + participants.size());
+        header.add("Количество упоминаний: " + mentions.size());
+        header.add("");
 
-        sb.append("Количество участников: ").append(participants.size()).append("\n");
-        sb.append("Количество упоминаний: ").append(mentions.size()).append("\n\n");
+        // Channels
+        List<String> footer = result.channels().isEmpty()
+                ? List.of()
+                : List.of("", "Каналы/ссылки: " + result.channels().size() + " (в Excel будут отдельной вкладкой)");
+
+        // concat, а не flatMap: flatMap при чтении через iterator() выгружает вложенный поток целиком
+        return concat(
+                header.stream(),
+                section("Участники:", participants, TextResultFormatter::renderParticipant),
+                Stream.of(""),
+                section("Упоминания:", mentions, TextResultFormatter::renderMention),
+                footer.stream());
+    }
 
-        // Participants
-        sb.append("Участники:\n");
-        if (participants.isEmpty()) {
-            sb.append("- (не найдено)\n");
-        } else {
-            for (UserEntry u : participants) {
-                sb.append("- ").append(renderParticipant(u)).append("\n");
-            }
+    /**
+     * Режет строки на сообщения не длиннее maxChars (лимит Telegram — {@link #TELEGRAM_MAX_MESSAGE_CHARS}).
+     *
+     * Страницы собираются лениво, по одной на next(): следующая строится только когда предыдущая уже забрана.
+     * Разрыв — только между строками; пустые строки в начале страницы пропускаются. Строка длиннее maxChars
+     * (очень длинное имя) режется по символам, не разрывая суррогатные пары.
+     */
+    public static Iterator<String> pages(Stream<String> lines, int maxChars) {
+        if (maxChars < 2) {
+            throw new IllegalArgumentException("maxChars must be >= 2");
         }
+        return new Pager(lines.iterator(), maxChars);
+    }
 
-        // Mentions
-        sb.append("\nУпоминания:\n");
-        if (mentions.isEmpty()) {
-            sb.append("- (не найдено)\n");
-        } else {
-            for (UserEntry u : mentions) {
-                sb.append("- ").append(renderMention(u)).append("\n");
-            }
+    @SafeVarargs
+    private static <T> Stream<T> concat(Stream<T>... parts) {
+        Stream<T> all = Stream.empty();
+        for (Stream<T> part : parts) {
+            all = Stream.concat(all, part);
         }
+        return all;
+    }
 
-        // Channels
-        if (!result.channels().isEmpty()) {
-            sb.append("\nКаналы/ссылки: ")
-                    .append(result.channels().size())
-                    .append(" (в Excel будут отдельной вкладкой)\n");
+    private static Stream<String> section(String title, SortedEntries entries, Function<UserRow, String> render) {
+        if (entries.isEmpty()) {
+            return Stream.of(title, "- (не найдено)");
+        }
+        return Stream.concat(Stream.of(title), entries.stream().map(u -> "- " + render.apply(u)));
+    }
+
+    private static final class Pager implements Iterator<String> {
+        private final Iterator<String> lines;
+        private final int maxChars;
+        private final StringBuilder page;
+        // хвост строки, не поместившийся в предыдущую страницу
+        private String pending;
+
+        Pager(Iterator<String> lines, int maxChars) {
+            this.lines = lines;
+            this.maxChars = maxChars;
+            this.page = new StringBuilder(Math.min(maxChars, 4096));
         }
 
-        return sb.toString();
+        @Override
+        public boolean hasNext() {
+            if (pending != null && pending.isBlank()) {
+                pending = null;
+            }
+            while (pending == null && lines.hasNext()) {
+                String line = lines.next();
+                if (!line.isBlank()) {
+                    pending = line;
+                }
+            }
+            return pending != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            page.setLength(0);
+            while (pending != null) {
+                String line = pending;
+                int room = page.isEmpty() ? maxChars : maxChars - page.length() - 1;
+                if (line.length() > room) {
+                    if (!page.isEmpty()) break;
+                    // строка длиннее целой страницы: отдаём кусок, остаток ждёт следующей страницы
+                    int cut = Character.isHighSurrogate(line.charAt(room - 1)) ? room - 1 : room;
+                    page.append(line, 0, cut);
+                    pending = line.substring(cut);
+                    break;
+                }
+                if (!page.isEmpty()) page.append('\n');
+                page.append(line);
+                pending = lines.hasNext() ? lines.next() : null;
+            }
+            // пустая строка-разделитель в конце страницы не нужна
+            while (page.charAt(page.length() - 1) == '\n') {
+                page.setLength(page.length() - 1);
+            }
+            return page.toString();
+        }
     }
 
-    private static String renderParticipant(UserEntry u) {
+    private static String renderParticipant(UserRow u) {
         // Для участников приоритет — отображаемое имя (как в экспорте Telegram)
         if (u.displayName() != null && !u.displayName().isBlank()) {
             return u.displayName();
@@ -90,7 +174,7 @@ public final class TextResultFormatter {
         return "(unknown)";
     }
 
-    private static String renderMention(UserEntry u) {
+    private static String renderMention(UserRow u) {
         // Для упоминаний логично показывать именно @username
         if (u.username() != null && !u.username().isBlank()) {
             return "@" + u.username();
@@ -105,14 +189,14 @@ public final class TextResultFormatter {
         return "(unknown)";
     }
 
-    private static String participantKey(UserEntry u) {
+    private static String participantKey(UserRow u) {
         if (u.displayName() != null && !u.displayName().isBlank()) return u.displayName();
         if (u.username() != null && !u.username().isBlank()) return u.username();
         if (u.link() != null && !u.link().isBlank()) return u.link();
         return "";
     }
 
-    private static String mentionKey(UserEntry u) {
+    private static String mentionKey(UserRow u) {
         if (u.username() != null && !u.username().isBlank()) return u.username();
         if (u.displayName() != null && !u.displayName().isBlank()) return u.displayName();
         if (u.link() != null && !u.link().isBlank()) return u.link();
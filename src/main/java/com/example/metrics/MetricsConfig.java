@@ -0,0 +1,89 @@
+package com.example.metrics;
+
+import com.example.core.cache.ResultCache;
+import com.example.processing.ChatLaneExecutor;
+import com.example.processing.OutboundDispatcher;
+import com.example.processing.ProcessingExecutors;
+import com.example.processing.ProcessingScheduler;
+import com.example.session.SessionStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Реестр метрик (Prometheus) и gauges по состоянию компонентов: очередь планировщика, кэш, сессии,
+ * исходящая очередь, полосы апдейтов, плюс стандартные метрики JVM.
+ *
+ * Spring Boot Actuator не подключён (нет servlet-контейнера), поэтому реестр создаётся здесь,
+ * а отдаёт его {@link com.example.web.MetricsEndpoint} на встроенном сервере.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public PrometheusMeterRegistry meterRegistry() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        return registry;
+    }
+
+    @Bean
+    public ComponentGauges componentGauges(MeterRegistry registry, ProcessingScheduler scheduler, ResultCache cache,
+                                           SessionStore sessions, OutboundDispatcher outbound,
+                                           ProcessingExecutors executors) {
+        return new ComponentGauges(registry, scheduler, cache, sessions, outbound, executors.updateLanes());
+    }
+
+    /**
+     * Значения читаются из stats() компонентов в момент опроса, сами компоненты про метрики не знают.
+     */
+    public static final class ComponentGauges {
+
+        ComponentGauges(MeterRegistry registry, ProcessingScheduler scheduler, ResultCache cache, SessionStore sessions,
+                        OutboundDispatcher outbound, ChatLaneExecutor updateLanes) {
+            gauge(registry, "bot.scheduler.queue.depth", scheduler, s -> s.stats().queueDepth());
+            gauge(registry, "bot.scheduler.active.jobs", scheduler, s -> s.stats().activeJobs());
+            counter(registry, "bot.scheduler.completed.jobs", scheduler, s -> s.stats().completedJobs());
+            counter(registry, "bot.scheduler.rejected.jobs", scheduler, s -> s.stats().rejectedJobs());
+
+            gauge(registry, "bot.cache.entries", cache, c -> c.stats().entries());
+            gauge(registry, "bot.cache.weight", cache, c -> c.stats().weight());
+            counter(registry, "bot.cache.hits", cache, c -> c.stats().hits());
+            counter(registry, "bot.cache.misses", cache, c -> c.stats().misses());
+
+            gauge(registry, "bot.sessions.active", sessions, s -> s.stats().sessions());
+            counter(registry, "bot.sessions.evicted", sessions, s -> s.stats().evictedTotal());
+
+            gauge(registry, "bot.outbound.queued", outbound, o -> o.stats().queued());
+            gauge(registry, "bot.outbound.active.chats", outbound, o -> o.stats().activeChats());
+            counter(registry, "bot.outbound.sent", outbound, o -> o.stats().sent());
+            counter(registry, "bot.outbound.failed", outbound, o -> o.stats().failed());
+            counter(registry, "bot.outbound.retried", outbound, o -> o.stats().retried());
+            counter(registry, "bot.outbound.rate.limited", outbound, o -> o.stats().rateLimited());
+
+            gauge(registry, "bot.updates.pending", updateLanes, ChatLaneExecutor::pending);
+            gauge(registry, "bot.updates.active.chats", updateLanes, ChatLaneExecutor::activeChats);
+        }
+
+        private static <T> void gauge(MeterRegistry registry, String name, T obj, ToDoubleFunction<T> f) {
+            Gauge.builder(name, obj, f).register(registry);
+        }
+
+        private static <T> void counter(MeterRegistry registry, String name, T obj, ToDoubleFunction<T> f) {
+            FunctionCounter.builder(name, obj, f).register(registry);
+        }
+    }
+}
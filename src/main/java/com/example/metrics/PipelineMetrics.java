@@ -0,0 +1,149 @@
+package com.example.metrics;
+
+import com.example.core.model.ResultBundle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики конвейера обработки файлов: время каждого этапа (с гистограммой), ошибки этапов,
+ * объём скачанных данных, число найденных записей и ожидание в очереди планировщика.
+ *
+ * Парсер, дедуп и экспорт — статические утилиты без зависимостей, поэтому этапы замеряются
+ * в месте вызова: {@code metrics.time(Stage.PARSE, () -> ...)}.
+ */
+@Component
+public class PipelineMetrics {
+
+    public enum Stage {
+        /** GetFile + скачивание файла целиком */
+        DOWNLOAD,
+        /** разбор скачанного файла */
+        PARSE,
+        /** скачивание и разбор одним потоком (processing.download-mode=PIPELINED) */
+        DOWNLOAD_PARSE,
+        /** слияние результатов файлов с дедупом (общий отчёт) */
+        DEDUP,
+        /** текстовый отчёт */
+        FORMAT,
+        /** Excel-отчёт */
+        EXPORT,
+        /** вызов Bot API: отправка сообщения или документа */
+        SEND;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    @FunctionalInterface
+    public interface StageCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface StageRun<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> success = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> failure = new EnumMap<>(Stage.class);
+    private final DistributionSummary downloadedBytes;
+    private final Counter participants;
+    private final Counter mentions;
+    private final Counter channels;
+    private final Timer queueWait;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            success.put(stage, stageTimer(stage, "success"));
+            failure.put(stage, stageTimer(stage, "error"));
+        }
+        this.downloadedBytes = DistributionSummary.builder("bot.pipeline.downloaded")
+                .description("Size of downloaded export files")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.participants = entries("participants");
+        this.mentions = entries("mentions");
+        this.channels = entries("channels");
+        this.queueWait = Timer.builder("bot.processing.queue.wait")
+                .description("Time a processing job waited for a free slot")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Выполняет этап и записывает его время: с outcome=success, либо outcome=error и счётчиком ошибок по типу исключения.
+     */
+    public <T, E extends Exception> T time(Stage stage, StageCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            success.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Exception | Error e) {
+            failure.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            registry.counter("bot.pipeline.errors", "stage", stage.tag(), "exception", e.getClass().getSimpleName())
+                    .increment();
+            throw e;
+        }
+    }
+
+    public <E extends Exception> void run(Stage stage, StageRun<E> run) throws E {
+        time(stage, () -> {
+            run.run();
+            return null;
+        });
+    }
+
+    public void downloaded(long bytes) {
+        if (bytes > 0) {
+            downloadedBytes.record(bytes);
+        }
+    }
+
+    /**
+     * Записи, найденные в одном файле (после дедупа внутри файла).
+     */
+    public void found(ResultBundle result) {
+        found(result.participants().size(), result.mentions().size(), result.channels().size());
+    }
+
+    /**
+     * То же по числам — когда записи ушли в отчёт по ходу разбора и результата в памяти нет.
+     */
+    public void found(int participants, int mentions, int channels) {
+        this.participants.increment(participants);
+        this.mentions.increment(mentions);
+        this.channels.increment(channels);
+    }
+
+    public void queueWait(Duration wait) {
+        queueWait.record(wait);
+    }
+
+    private Timer stageTimer(Stage stage, String outcome) {
+        return Timer.builder("bot.pipeline.stage")
+                .description("Duration of a file processing stage")
+                .tags("stage", stage.tag(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter entries(String kind) {
+        return Counter.builder("bot.pipeline.entries")
+                .description("Unique entries found in parsed files")
+                .tag("kind", kind)
+                .register(registry);
+    }
+}
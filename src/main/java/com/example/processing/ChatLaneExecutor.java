@@ -0,0 +1,124 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Последовательные «полосы» задач по chatId поверх общего executor.
+ *
+ * Задачи одного чата выполняются строго по очереди и в порядке постановки, разных чатов — параллельно.
+ * У чата в каждый момент не больше одной задачи на executor: она разбирает очередь своей полосы,
+ * а после {@link #MAX_BATCH} задач подряд уступает поток (ставит продолжение в конец executor),
+ * чтобы активный чат не занимал поток бесконечно. Сам execute() не блокируется.
+ *
+ * Если executor отказал (RejectedExecutionException, например уже остановлен): новая полоса не запускается,
+ * её задачи отбрасываются с ошибкой в логе, а счётчик pending уменьшается — полоса не «зависает»;
+ * продолжение после MAX_BATCH дорабатывает полосу в текущем потоке.
+ */
+@Slf4j
+public final class ChatLaneExecutor {
+
+    static final int MAX_BATCH = 32;
+
+    private final Executor executor;
+    // Под монитором this: очереди чатов, у которых есть задача в работе
+    private final Map<Long, ArrayDeque<Runnable>> lanes = new HashMap<>();
+    private int pending;
+    private boolean shutdown;
+
+    public ChatLaneExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void execute(long chatId, Runnable task) {
+        synchronized (this) {
+            if (shutdown) {
+                log.warn("Task for chat {} dropped: lanes are shut down", chatId);
+                return;
+            }
+            pending++;
+            ArrayDeque<Runnable> lane = lanes.get(chatId);
+            if (lane != null) {
+                lane.addLast(task);
+                return;
+            }
+            lanes.put(chatId, new ArrayDeque<>());
+        }
+        try {
+            executor.execute(() -> drain(chatId, task));
+        } catch (RejectedExecutionException e) {
+            int dropped;
+            synchronized (this) {
+                // полосу никто не разбирает: снимаем её вместе с задачами, успевшими встать следом
+                ArrayDeque<Runnable> lane = lanes.remove(chatId);
+                dropped = 1 + lane.size();
+                pending -= dropped;
+                if (pending == 0) notifyAll();
+            }
+            log.error("Executor rejected lane of chat {}: {} task(s) dropped", chatId, dropped, e);
+        }
+    }
+
+    /**
+     * Задачи, поставленные, но ещё не завершённые (во всех чатах).
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+
+    public synchronized int activeChats() {
+        return lanes.size();
+    }
+
+    /**
+     * Новые задачи больше не принимаются (отбрасываются с предупреждением), уже поставленные дорабатывают.
+     * Сам executor не останавливается — он чужой.
+     *
+     * @return true, если все поставленные задачи завершились за timeout
+     */
+    public synchronized boolean shutdownAndDrain(Duration timeout) throws InterruptedException {
+        shutdown = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending > 0) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return true;
+    }
+
+    private void drain(long chatId, Runnable first) {
+        Runnable task = first;
+        for (int done = 0; task != null; done++) {
+            if (done == MAX_BATCH) {
+                Runnable next = task;
+                try {
+                    executor.execute(() -> drain(chatId, next));
+                    return;
+                } catch (RejectedExecutionException e) {
+                    log.warn("Executor rejected continuation of chat {} lane: draining it in place", chatId);
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Task for chat {} failed", chatId, t);
+            }
+            synchronized (this) {
+                if (--pending == 0) notifyAll();
+                ArrayDeque<Runnable> lane = lanes.get(chatId);
+                task = lane.pollFirst();
+                if (task == null) {
+                    lanes.remove(chatId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.processing;
+
+/**
+ * Как файл экспорта попадает в парсер (processing.download-mode).
+ */
+public enum DownloadMode {
+    /**
+     * Сначала файл целиком скачивается во временную папку, затем разбирается.
+     */
+    FILE,
+    /**
+     * Поток скачивания сразу идёт в потоковый парсер: сеть и разбор перекрываются,
+     * на диск файл пишется только при processing.keep-downloads=true.
+     */
+    PIPELINED;
+
+    public static DownloadMode fromProperty(String value) {
+        if (value == null || value.isBlank()) return PIPELINED;
+        return valueOf(value.trim().toUpperCase());
+    }
+}
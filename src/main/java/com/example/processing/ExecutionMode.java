@@ -0,0 +1,21 @@
+package com.example.processing;
+
+/**
+ * Модель потоков для блокирующих операций (апдейты, скачивание). Отправку ведёт {@link OutboundDispatcher}
+ * на своём пуле в любом режиме.
+ */
+public enum ExecutionMode {
+    /**
+     * Обычные потоки платформы (по умолчанию, работает на Java 17).
+     */
+    PLATFORM,
+    /**
+     * Виртуальные потоки Java 21+. На более старой JVM — откат на PLATFORM с предупреждением в логе.
+     */
+    VIRTUAL;
+
+    public static ExecutionMode fromProperty(String value) {
+        if (value == null || value.isBlank()) return PLATFORM;
+        return valueOf(value.trim().toUpperCase());
+    }
+}
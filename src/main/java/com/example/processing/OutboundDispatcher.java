@@ -0,0 +1,356 @@
+package com.example.processing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь исходящих вызовов Bot API (sendMessage / sendDocument) с учётом лимитов Telegram.
+ *
+ * - глобальный token bucket (outbound.global-per-second) и token bucket на чат (outbound.per-chat-per-second,
+ *   outbound.per-chat-burst);
+ * - у каждого чата своя FIFO-очередь («полоса»): сообщения одного чата уходят строго по порядку и по одному;
+ * - приоритет: чат, у которого в голове очереди интерактивный ответ, обслуживается раньше чатов с массовой
+ *   отправкой результатов; внутри приоритета — по кругу;
+ * - 429 Too Many Requests: полоса чата ждёт retry_after и повторяет тот же вызов, 5xx — повтор с экспоненциальной
+ *   паузой; не больше outbound.max-retries повторов. Остальные ошибки сразу отдаются вызывающему.
+ *
+ * Планирование — в одном потоке "outbound-dispatcher", сами вызовы — на небольшом пуле (outbound.senders).
+ */
+@Slf4j
+@Component
+public class OutboundDispatcher {
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        T call() throws TelegramApiException;
+    }
+
+    public record Stats(
+            int queued,
+            int activeChats,
+            long sent,
+            long failed,
+            long retried,
+            long rateLimited
+    ) {}
+
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class Job {
+        final Priority priority;
+        final ApiCall<?> call;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        int attempts;
+
+        Job(Priority priority, ApiCall<?> call) {
+            this.priority = priority;
+            this.call = call;
+        }
+    }
+
+    private static final class Lane {
+        final long chatId;
+        final ArrayDeque<Job> queue = new ArrayDeque<>();
+        final TokenBucket bucket;
+        boolean inFlight;
+        long notBeforeNanos;
+
+        Lane(long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+    }
+
+    private final double perChatPerSecond;
+    private final int perChatBurst;
+    private final int maxRetries;
+    private final ExecutorService senders;
+    private final Thread dispatcherThread;
+
+    // Всё состояние ниже — под монитором this
+    private final TokenBucket global;
+    // порядок вставки — очередь обслуживания по кругу. Пустая полоса живёт, пока её bucket не восполнится,
+    // иначе чат, отправляющий по одному сообщению, каждый раз получал бы новый полный bucket.
+    private final Map<Long, Lane> lanes = new LinkedHashMap<>();
+    private int queued;
+    private long sent;
+    private long failed;
+    private long retried;
+    private long rateLimited;
+    private boolean running = true;
+
+    @Autowired
+    public OutboundDispatcher(@Value("${outbound.global-per-second:25}") double globalPerSecond,
+                              @Value("${outbound.per-chat-per-second:1}") double perChatPerSecond,
+                              @Value("${outbound.per-chat-burst:3}") int perChatBurst,
+                              @Value("${outbound.max-retries:3}") int maxRetries,
+                              @Value("${outbound.senders:4}") int senders) {
+        if (globalPerSecond <= 0 || perChatPerSecond <= 0) {
+            throw new IllegalArgumentException("outbound rates must be > 0");
+        }
+        long now = System.nanoTime();
+        this.global = new TokenBucket(globalPerSecond, Math.max(1, (int) Math.ceil(globalPerSecond)), now);
+        this.perChatPerSecond = perChatPerSecond;
+        this.perChatBurst = Math.max(1, perChatBurst);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senders), ProcessingExecutors.daemonThreads("outbound-"));
+        this.dispatcherThread = ProcessingExecutors.daemonThreads("outbound-dispatcher").newThread(this::dispatchLoop);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Ставит вызов в очередь чата. Результат — ответ Bot API или исключение вызова после всех повторов.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> submit(long chatId, Priority priority, ApiCall<T> call) {
+        Job job = new Job(priority, call);
+        if (!running) {
+            job.result.completeExceptionally(new IllegalStateException("Outbound dispatcher is stopped"));
+            return (CompletableFuture<T>) job.result;
+        }
+        Lane lane = lanes.computeIfAbsent(chatId,
+                id -> new Lane(id, new TokenBucket(perChatPerSecond, perChatBurst, System.nanoTime())));
+        lane.queue.addLast(job);
+        queued++;
+        notifyAll();
+        return (CompletableFuture<T>) job.result;
+    }
+
+    /**
+     * То же, что {@link #submit}, но с ожиданием результата: для мест, где дальше нужен отправленный ответ
+     * или где файл нельзя удалять до отправки.
+     */
+    public <T> T sendAndWait(long chatId, Priority priority, ApiCall<T> call) throws TelegramApiException {
+        try {
+            return submit(chatId, priority, call).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException("Interrupted while waiting for outbound send", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    public synchronized Stats stats() {
+        int active = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.inFlight || !lane.queue.isEmpty()) active++;
+        }
+        return new Stats(queued, active, sent, failed, retried, rateLimited);
+    }
+
+    /**
+     * Ещё не отправленные вызовы завершаются ошибкой, идущие сейчас — дожидаемся (повторов уже не будет).
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            dispatcherThread.join(ProcessingExecutors.SHUTDOWN_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ProcessingExecutors.shutdownAndAwait(senders, "outbound", ProcessingExecutors.SHUTDOWN_TIMEOUT);
+    }
+
+    private void dispatchLoop() {
+        synchronized (this) {
+            while (running) {
+                long now = System.nanoTime();
+                Lane lane = pickReady(now);
+                long waitNanos;
+                if (lane == null) {
+                    waitNanos = nextWakeupNanos(now);
+                } else if (!global.tryTake(now)) {
+                    waitNanos = global.nanosUntilToken(now);
+                } else {
+                    lane.bucket.tryTake(now);
+                    Job job = lane.queue.pollFirst();
+                    queued--;
+                    lane.inFlight = true;
+                    // в конец круга — следующим обслуживается другой чат
+                    lanes.remove(lane.chatId);
+                    lanes.put(lane.chatId, lane);
+                    senders.execute(() -> send(lane, job));
+                    continue;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            for (Lane lane : lanes.values()) {
+                for (Job job : lane.queue) {
+                    job.result.completeExceptionally(new IllegalStateException("Outbound dispatcher is stopped"));
+                }
+            }
+        }
+    }
+
+    // вызывается под монитором
+    private Lane pickReady(long now) {
+        Lane bulk = null;
+        for (Iterator<Lane> it = lanes.values().iterator(); it.hasNext(); ) {
+            Lane lane = it.next();
+            if (!lane.inFlight && lane.queue.isEmpty()) {
+                if (now >= lane.notBeforeNanos && lane.bucket.isFull(now)) it.remove();
+                continue;
+            }
+            if (lane.inFlight || now < lane.notBeforeNanos || !lane.bucket.hasToken(now)) {
+                continue;
+            }
+            if (lane.queue.peekFirst().priority == Priority.INTERACTIVE) {
+                return lane;
+            }
+            if (bulk == null) {
+                bulk = lane;
+            }
+        }
+        return bulk;
+    }
+
+    // вызывается под монитором
+    private long nextWakeupNanos(long now) {
+        long wait = MAX_IDLE_WAIT_NANOS;
+        for (Lane lane : lanes.values()) {
+            if (lane.inFlight || lane.queue.isEmpty()) continue;
+            long ready = Math.max(lane.notBeforeNanos - now, lane.bucket.nanosUntilToken(now));
+            wait = Math.min(wait, ready);
+        }
+        return wait;
+    }
+
+    private void send(Lane lane, Job job) {
+        Object response = null;
+        TelegramApiException error = null;
+        try {
+            response = job.call.call();
+        } catch (TelegramApiException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new TelegramApiException(e);
+        }
+
+        synchronized (this) {
+            lane.inFlight = false;
+            if (error == null) {
+                sent++;
+                job.result.complete(response);
+            } else {
+                long backoffNanos = retryBackoffNanos(error, job.attempts);
+                if (backoffNanos >= 0 && job.attempts < maxRetries && running) {
+                    job.attempts++;
+                    retried++;
+                    lane.notBeforeNanos = System.nanoTime() + backoffNanos;
+                    lane.queue.addFirst(job);
+                    queued++;
+                    log.warn("Outbound send to chat {} failed ({}), retry {} in {} ms", lane.chatId, error.getMessage(),
+                            job.attempts, TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+                } else {
+                    failed++;
+                    job.result.completeExceptionally(error);
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Пауза перед повтором или -1, если ошибку повторять не нужно.
+     */
+    // вызывается под монитором
+    private long retryBackoffNanos(TelegramApiException error, int attempts) {
+        if (!(error instanceof TelegramApiRequestException request) || request.getErrorCode() == null) {
+            return -1;
+        }
+        int code = request.getErrorCode();
+        if (code == 429) {
+            rateLimited++;
+            Integer retryAfter = request.getParameters() != null ? request.getParameters().getRetryAfter() : null;
+            return TimeUnit.SECONDS.toNanos(retryAfter != null && retryAfter > 0 ? retryAfter : 1);
+        }
+        if (code >= 500) {
+            return TimeUnit.SECONDS.toNanos(1L << Math.min(attempts, 5));
+        }
+        return -1;
+    }
+
+    private static TelegramApiException unwrap(Throwable t) {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof TelegramApiException e) return e;
+        return new TelegramApiException(cause);
+    }
+
+    /**
+     * Token bucket: rate токенов в секунду, не больше capacity про запас. Не потокобезопасен — под монитором.
+     */
+    static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(double perSecond, int capacity, long nowNanos) {
+            this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        boolean hasToken(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= 1;
+        }
+
+        boolean isFull(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= capacity;
+        }
+
+        boolean tryTake(long nowNanos) {
+            refill(nowNanos);
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+
+        long nanosUntilToken(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+}
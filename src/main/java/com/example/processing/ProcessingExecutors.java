@@ -0,0 +1,183 @@
+package com.example.processing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пулы потоков обработки в одном месте.
+ *
+ * - parsePool — парсинг (CPU), всегда ограниченный пул потоков платформы (processing.file-workers);
+ * - chunkPool — куски параллельного разбора одного большого файла (ParseMode.PARALLEL): свой ForkJoinPool
+ *   на processing.chunk-workers потоков (0 — по числу ядер), общий для всех таких файлов, а не общий пул JVM;
+ * - ioExecutor — скачивание файлов, в том числе разбор прямо из потока скачивания (PIPELINED: такой разбор
+ *   большую часть времени ждёт сеть): в режиме VIRTUAL — виртуальный поток на задачу, в режиме PLATFORM — отдельный
+ *   пул processing.io-workers, чтобы ожидание сети не занимало потоки парсинга;
+ * - updateLanes — разбор апдейтов вне polling-потока, последовательно внутри чата ({@link ChatLaneExecutor}):
+ *   в режиме VIRTUAL — на виртуальных потоках, в PLATFORM — на пуле processing.update-workers.
+ *
+ * Проект собирается под Java 17, поэтому виртуальные потоки создаются через reflection
+ * (Executors.newVirtualThreadPerTaskExecutor появился в Java 21).
+ *
+ * Остановка ({@link #shutdown()}): полосы апдейтов перестают принимать задачи и дорабатывают поставленные,
+ * затем пулы дожидаются текущих задач (не дольше {@link #SHUTDOWN_TIMEOUT}, потом прерываются).
+ * {@link ProcessingScheduler} зависит от этого бина и останавливается раньше, {@link OutboundDispatcher} — позже:
+ * дорабатывающие задачи ещё отправляют ответы.
+ */
+@Slf4j
+@Component
+@DependsOn("outboundDispatcher")
+public class ProcessingExecutors {
+
+    static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ExecutionMode mode;
+    private final ExecutorService parsePool;
+    private final ForkJoinPool chunkPool;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService updateExecutor;
+    private final ChatLaneExecutor updateLanes;
+
+    public ProcessingExecutors(String mode, int fileWorkers) {
+        this(mode, fileWorkers, fileWorkers, 1);
+    }
+
+    public ProcessingExecutors(String mode, int fileWorkers, int ioWorkers, int updateWorkers) {
+        this(mode, fileWorkers, ioWorkers, updateWorkers, 0);
+    }
+
+    @Autowired
+    public ProcessingExecutors(@Value("${processing.execution-mode:PLATFORM}") String mode,
+                               @Value("${processing.file-workers:4}") int fileWorkers,
+                               @Value("${processing.io-workers:16}") int ioWorkers,
+                               @Value("${processing.update-workers:8}") int updateWorkers,
+                               @Value("${processing.chunk-workers:0}") int chunkWorkers) {
+        this.parsePool = Executors.newFixedThreadPool(fileWorkers, daemonThreads("file-worker-"));
+        this.chunkPool = newChunkPool(chunkWorkers > 0 ? chunkWorkers : Runtime.getRuntime().availableProcessors());
+
+        ExecutorService virtual = null;
+        if (ExecutionMode.fromProperty(mode) == ExecutionMode.VIRTUAL) {
+            virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual == null) {
+                log.warn("processing.execution-mode=VIRTUAL requires Java 21+, running on {}: falling back to PLATFORM",
+                        System.getProperty("java.version"));
+            }
+        }
+        this.mode = virtual != null ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM;
+        this.ioExecutor = virtual != null
+                ? virtual
+                : Executors.newFixedThreadPool(Math.max(1, ioWorkers), daemonThreads("io-"));
+        this.updateExecutor = virtual != null
+                ? virtual
+                : Executors.newFixedThreadPool(Math.max(1, updateWorkers), daemonThreads("update-"));
+        this.updateLanes = new ChatLaneExecutor(updateExecutor);
+        log.info("Processing execution mode: {}", this.mode);
+    }
+
+    public ExecutionMode mode() {
+        return mode;
+    }
+
+    public ExecutorService parsePool() {
+        return parsePool;
+    }
+
+    public ForkJoinPool chunkPool() {
+        return chunkPool;
+    }
+
+    public ExecutorService ioExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Очередь разбора апдейтов: по полосе на чат.
+     */
+    public ChatLaneExecutor updateLanes() {
+        return updateLanes;
+    }
+
+    /**
+     * Останавливает обработку апдейтов и пулы: сначала полосы дорабатывают уже принятые апдейты
+     * (они могут ставить работу в пулы ниже), потом каждый пул дожидается своих задач.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (!updateLanes.shutdownAndDrain(SHUTDOWN_TIMEOUT)) {
+                log.warn("Update lanes did not drain in {}: {} update(s) left", SHUTDOWN_TIMEOUT, updateLanes.pending());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shutdownAndAwait(updateExecutor, "update", SHUTDOWN_TIMEOUT);
+        shutdownAndAwait(ioExecutor, "io", SHUTDOWN_TIMEOUT);
+        shutdownAndAwait(parsePool, "parse", SHUTDOWN_TIMEOUT);
+        // после parsePool: его задачи ждут свои куски
+        shutdownAndAwait(chunkPool, "parse-chunk", SHUTDOWN_TIMEOUT);
+    }
+
+    /**
+     * shutdown и ожидание текущих задач; не успели за timeout — shutdownNow (прерывание).
+     */
+    static void shutdownAndAwait(ExecutorService executor, String name, Duration timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} executor did not finish in {}: interrupting", name, timeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executor для задач {@link ProcessingScheduler}: их число ограничивает сам планировщик,
+     * а большую часть времени задача ждёт скачивание/парсинг и отправку.
+     */
+    ExecutorService newJobExecutor(int maxConcurrentJobs) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) return virtual;
+        }
+        return Executors.newFixedThreadPool(maxConcurrentJobs, daemonThreads("processing-"));
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() на Java 21+, иначе null.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ForkJoinPool newChunkPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("parse-chunk-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+    }
+
+    static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory tf = new CustomizableThreadFactory(prefix);
+        tf.setDaemon(true);
+        return tf;
+    }
+}
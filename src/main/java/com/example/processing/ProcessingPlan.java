@@ -0,0 +1,31 @@
+package com.example.processing;
+
+import com.example.core.parse.ParseMode;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * План обработки сессии, составленный до скачивания по размерам файлов ({@link ProcessingPlanner}).
+ *
+ * @param files          план по каждому файлу, в порядке файлов сессии
+ * @param totalBytes     суммарный размер файлов (неизвестные размеры — 0)
+ * @param streamingExcel общий отчёт по всем файлам писать потоково (SXSSF), не дожидаясь подсчёта строк
+ * @param estimate       примерное время скачивания и разбора всех файлов
+ * @param longRunning    estimate не меньше processing.plan.warn-after-seconds — стоит предупредить пользователя
+ */
+public record ProcessingPlan(
+        List<FilePlan> files,
+        long totalBytes,
+        boolean streamingExcel,
+        Duration estimate,
+        boolean longRunning
+) {
+
+    /**
+     * @param parseMode      способ разбора в режиме скачивания файла целиком
+     * @param pipelined      разбирать прямо из потока скачивания (всегда потоковый разбор, parseMode не используется)
+     * @param streamingExcel отчёт по файлу писать потоково (SXSSF), не дожидаясь подсчёта строк
+     */
+    public record FilePlan(ParseMode parseMode, boolean pipelined, boolean streamingExcel) {}
+}
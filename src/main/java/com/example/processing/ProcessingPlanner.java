@@ -0,0 +1,122 @@
+package com.example.processing;
+
+import com.example.core.parse.ParseMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выбор стратегии обработки до скачивания — по размерам файлов из сообщения с документом (Session.FileMeta.fileSize).
+ *
+ * - размер неизвестен — как настроено (processing.download-mode), потоковый разбор;
+ * - файл не больше processing.plan.tree-max-bytes — дерево (в режиме FILE) или разбор из потока скачивания;
+ * - файл от processing.plan.parallel-min-bytes и больше одного ядра — скачать целиком и разобрать параллельно.
+ *   Только для локального Bot API server: облачный отдаёт файлы до {@link #CLOUD_BOT_API_MAX_BYTES}, и для них
+ *   разбор из потока скачивания быстрее (сеть дольше разбора), поэтому порог по умолчанию (32 МБ) выше этого лимита;
+ * - остальное — потоковый разбор, из потока скачивания или из файла;
+ * - Excel от processing.plan.excel-streaming-min-bytes (по умолчанию 8 МБ — верхняя половина файлов облачного
+ *   Bot API) пишется потоково сразу, остальное — по числу строк, как раньше.
+ *
+ * Время оценивается по скоростям скачивания и разбора из настроек; файлы обрабатываются параллельно
+ * (не больше processing.file-workers).
+ */
+@Component
+public class ProcessingPlanner {
+
+    private static final long MB = 1L << 20;
+    // больше облачный Bot API файл не отдаёт (getFile)
+    static final long CLOUD_BOT_API_MAX_BYTES = 20 * MB;
+    // дерево строит весь файл в памяти: примерно вдвое медленнее потокового разбора
+    private static final double TREE_SLOWDOWN = 2.0;
+    // выше — упираемся в память и слияние кусков
+    private static final int MAX_PARALLEL_SPEEDUP = 4;
+
+    private final DownloadMode downloadMode;
+    private final int fileWorkers;
+    private final int cpus;
+    private final long treeMaxBytes;
+    private final long parallelMinBytes;
+    private final long excelStreamingMinBytes;
+    private final double downloadBytesPerSecond;
+    private final double parseBytesPerSecond;
+    private final Duration warnAfter;
+
+    @Autowired
+    public ProcessingPlanner(@Value("${processing.download-mode:PIPELINED}") String downloadMode,
+                             @Value("${processing.file-workers:4}") int fileWorkers,
+                             @Value("${processing.plan.tree-max-bytes:1048576}") long treeMaxBytes,
+                             @Value("${processing.plan.parallel-min-bytes:33554432}") long parallelMinBytes,
+                             @Value("${processing.plan.excel-streaming-min-bytes:8388608}") long excelStreamingMinBytes,
+                             @Value("${processing.plan.download-mb-per-second:5}") double downloadMbPerSecond,
+                             @Value("${processing.plan.parse-mb-per-second:40}") double parseMbPerSecond,
+                             @Value("${processing.plan.warn-after-seconds:30}") int warnAfterSeconds) {
+        this(DownloadMode.fromProperty(downloadMode), fileWorkers, Runtime.getRuntime().availableProcessors(),
+                treeMaxBytes, parallelMinBytes, excelStreamingMinBytes, downloadMbPerSecond, parseMbPerSecond,
+                Duration.ofSeconds(warnAfterSeconds));
+    }
+
+    public ProcessingPlanner(DownloadMode downloadMode, int fileWorkers, int cpus, long treeMaxBytes, long parallelMinBytes,
+                             long excelStreamingMinBytes, double downloadMbPerSecond, double parseMbPerSecond,
+                             Duration warnAfter) {
+        if (downloadMbPerSecond <= 0 || parseMbPerSecond <= 0) {
+            throw new IllegalArgumentException("processing.plan speeds must be > 0");
+        }
+        this.downloadMode = downloadMode;
+        this.fileWorkers = Math.max(1, fileWorkers);
+        this.cpus = Math.max(1, cpus);
+        this.treeMaxBytes = treeMaxBytes;
+        this.parallelMinBytes = parallelMinBytes;
+        this.excelStreamingMinBytes = excelStreamingMinBytes;
+        this.downloadBytesPerSecond = downloadMbPerSecond * MB;
+        this.parseBytesPerSecond = parseMbPerSecond * MB;
+        this.warnAfter = warnAfter;
+    }
+
+    /**
+     * @param fileSizes размеры файлов сессии по порядку; 0 — неизвестен
+     */
+    public ProcessingPlan plan(List<Long> fileSizes) {
+        List<ProcessingPlan.FilePlan> files = new ArrayList<>(fileSizes.size());
+        long totalBytes = 0;
+        double totalSeconds = 0;
+        for (long size : fileSizes) {
+            ProcessingPlan.FilePlan file = planFile(size);
+            files.add(file);
+            totalBytes += size;
+            totalSeconds += estimateSeconds(size, file);
+        }
+        // файлы сессии качаются и разбираются одновременно, но не больше file-workers
+        int parallelFiles = Math.max(1, Math.min(fileSizes.size(), fileWorkers));
+        Duration estimate = Duration.ofMillis((long) Math.ceil(totalSeconds / parallelFiles * 1000));
+        return new ProcessingPlan(List.copyOf(files), totalBytes, totalBytes >= excelStreamingMinBytes,
+                estimate, estimate.compareTo(warnAfter) >= 0);
+    }
+
+    private ProcessingPlan.FilePlan planFile(long size) {
+        boolean streamingExcel = size >= excelStreamingMinBytes;
+        if (size > 0 && size >= parallelMinBytes && cpus > 1) {
+            // куски режутся по отображённому в память файлу — нужен файл целиком
+            return new ProcessingPlan.FilePlan(ParseMode.PARALLEL, false, streamingExcel);
+        }
+        if (downloadMode == DownloadMode.PIPELINED) {
+            return new ProcessingPlan.FilePlan(ParseMode.STREAMING, true, streamingExcel);
+        }
+        ParseMode mode = size > 0 && size <= treeMaxBytes ? ParseMode.TREE : ParseMode.STREAMING;
+        return new ProcessingPlan.FilePlan(mode, false, streamingExcel);
+    }
+
+    private double estimateSeconds(long size, ProcessingPlan.FilePlan file) {
+        double download = size / downloadBytesPerSecond;
+        double parse = switch (file.parseMode()) {
+            case TREE -> size * TREE_SLOWDOWN / parseBytesPerSecond;
+            case STREAMING -> size / parseBytesPerSecond;
+            case PARALLEL -> size / (parseBytesPerSecond * Math.min(cpus, MAX_PARALLEL_SPEEDUP));
+        };
+        // из потока скачивания сеть и разбор перекрываются
+        return file.pipelined() ? Math.max(download, parse) : download + parse;
+    }
+}
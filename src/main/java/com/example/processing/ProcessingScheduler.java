@@ -0,0 +1,222 @@
+package com.example.processing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Планировщик задач обработки (одна задача = все файлы одной сессии).
+ *
+ * - глобальный лимит одновременно выполняемых задач (processing.max-concurrent-jobs);
+ * - ограниченная очередь ожидания (processing.queue-capacity), сверх неё задачи отклоняются;
+ * - справедливость между чатами: у чата не больше одной задачи в системе, очередь — FIFO по чатам,
+ *   поэтому один чат не может занять все слоты.
+ *
+ * Метрики (глубина очереди, активные задачи, ожидание) — через {@link #stats()}.
+ *
+ * При остановке ({@link #shutdown()}) новые задачи отклоняются, ждущие в очереди — отбрасываются,
+ * а выполняющиеся дорабатывают (не дольше {@link ProcessingExecutors#SHUTDOWN_TIMEOUT}).
+ */
+@Slf4j
+@Component
+public class ProcessingScheduler {
+
+    /**
+     * Почему задача не принята.
+     */
+    public enum Rejection {
+        NONE,
+        /** у чата уже есть задача в работе или в очереди (например, повторное нажатие кнопки) */
+        CHAT_BUSY,
+        /** очередь заполнена — система перегружена */
+        QUEUE_FULL,
+        /** приложение останавливается */
+        SHUTTING_DOWN
+    }
+
+    /**
+     * Результат постановки задачи. position: 0 — задача уже запущена, N > 0 — место в очереди.
+     */
+    public record Admission(boolean accepted, int position, Rejection rejection) {
+        static Admission started() {
+            return new Admission(true, 0, Rejection.NONE);
+        }
+
+        static Admission queued(int position) {
+            return new Admission(true, position, Rejection.NONE);
+        }
+
+        static Admission rejected(Rejection reason) {
+            return new Admission(false, -1, reason);
+        }
+
+        public boolean queued() {
+            return accepted && position > 0;
+        }
+    }
+
+    public record Stats(
+            int queueDepth,
+            int activeJobs,
+            long completedJobs,
+            long rejectedJobs,
+            long avgWaitMillis,
+            long maxWaitMillis
+    ) {}
+
+    private record Job(long chatId, Runnable task, long enqueuedAtNanos) {}
+
+    private final int maxConcurrentJobs;
+    private final int queueCapacity;
+    private final ExecutorService workers;
+
+    // Всё состояние ниже — под монитором this
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private final Set<Long> chatsInSystem = new HashSet<>();
+    private int activeJobs;
+    private long startedJobs;
+    private long completedJobs;
+    private long rejectedJobs;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private boolean shuttingDown;
+
+    @Autowired
+    public ProcessingScheduler(@Value("${processing.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                               @Value("${processing.queue-capacity:100}") int queueCapacity,
+                               ProcessingExecutors executors) {
+        this(maxConcurrentJobs, queueCapacity, executors.newJobExecutor(Math.max(1, maxConcurrentJobs)));
+    }
+
+    /**
+     * С собственным пулом потоков платформы на задачи (остановить — {@link #shutdown()}).
+     */
+    public ProcessingScheduler(int maxConcurrentJobs, int queueCapacity) {
+        this(maxConcurrentJobs, queueCapacity, Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs),
+                ProcessingExecutors.daemonThreads("processing-")));
+    }
+
+    private ProcessingScheduler(int maxConcurrentJobs, int queueCapacity, ExecutorService workers) {
+        if (maxConcurrentJobs < 1) {
+            workers.shutdown();
+            throw new IllegalArgumentException("processing.max-concurrent-jobs must be >= 1");
+        }
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.workers = workers;
+    }
+
+    /**
+     * Ставит задачу чата в работу или в очередь.
+     * Отклоняет, если у чата уже есть задача в системе или очередь заполнена.
+     */
+    public synchronized Admission submit(long chatId, Runnable task) {
+        if (shuttingDown) {
+            rejectedJobs++;
+            return Admission.rejected(Rejection.SHUTTING_DOWN);
+        }
+        if (chatsInSystem.contains(chatId)) {
+            rejectedJobs++;
+            return Admission.rejected(Rejection.CHAT_BUSY);
+        }
+        Job job = new Job(chatId, task, System.nanoTime());
+        if (activeJobs < maxConcurrentJobs) {
+            chatsInSystem.add(chatId);
+            start(job);
+            return Admission.started();
+        }
+        if (queue.size() >= queueCapacity) {
+            rejectedJobs++;
+            return Admission.rejected(Rejection.QUEUE_FULL);
+        }
+        chatsInSystem.add(chatId);
+        queue.addLast(job);
+        return Admission.queued(queue.size());
+    }
+
+    /**
+     * Текущее место чата в очереди (1..N), 0 — если задача чата не ждёт в очереди.
+     */
+    public synchronized int queuePosition(long chatId) {
+        int pos = 1;
+        for (Iterator<Job> it = queue.iterator(); it.hasNext(); pos++) {
+            if (it.next().chatId() == chatId) return pos;
+        }
+        return 0;
+    }
+
+    public synchronized Stats stats() {
+        long avgWait = startedJobs == 0 ? 0 : totalWaitNanos / startedJobs;
+        return new Stats(
+                queue.size(),
+                activeJobs,
+                completedJobs,
+                rejectedJobs,
+                TimeUnit.NANOSECONDS.toMillis(avgWait),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)
+        );
+    }
+
+    /**
+     * Новые задачи больше не принимаются, ждущие в очереди отбрасываются, выполняющиеся дорабатывают.
+     */
+    @PreDestroy
+    public void shutdown() {
+        int dropped;
+        synchronized (this) {
+            shuttingDown = true;
+            dropped = queue.size();
+            for (Job job : queue) {
+                chatsInSystem.remove(job.chatId());
+            }
+            queue.clear();
+        }
+        if (dropped > 0) {
+            log.warn("Shutting down: {} queued processing job(s) dropped", dropped);
+        }
+        ProcessingExecutors.shutdownAndAwait(workers, "processing", ProcessingExecutors.SHUTDOWN_TIMEOUT);
+    }
+
+    // вызывается под монитором
+    private void start(Job job) {
+        activeJobs++;
+        startedJobs++;
+        long waited = System.nanoTime() - job.enqueuedAtNanos();
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+        if (waited >= TimeUnit.SECONDS.toNanos(1)) {
+            log.info("Processing job for chat {} started after {} ms in queue", job.chatId(), TimeUnit.NANOSECONDS.toMillis(waited));
+        }
+        workers.execute(() -> run(job));
+    }
+
+    private void run(Job job) {
+        try {
+            job.task().run();
+        } catch (Throwable t) {
+            log.error("Processing job failed for chat {}", job.chatId(), t);
+        } finally {
+            finished(job);
+        }
+    }
+
+    private synchronized void finished(Job job) {
+        activeJobs--;
+        completedJobs++;
+        chatsInSystem.remove(job.chatId());
+        Job next = queue.pollFirst();
+        if (next != null) {
+            start(next);
+        }
+    }
+}
@@ -36,5 +36,8 @@ public final class Session {
         return files;
     }
 
-    public record FileMeta(String fileId, String fileName, long fileSize) {}
+    /**
+     * fileUniqueId — постоянный id файла в Telegram (одинаков у повторных загрузок), ключ кэша результатов.
+     */
+    public record FileMeta(String fileId, String fileUniqueId, String fileName, long fileSize) {}
 }
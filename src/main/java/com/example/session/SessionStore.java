@@ -2,19 +2,63 @@ package com.example.session;
 
 import com.example.enums.Constants;
 import com.example.enums.UserState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Сессии в памяти + фоновая очистка истёкших.
+ *
+ * Кроме ленивой проверки TTL при следующем действии пользователя (Bot.touchOrExpire), раз в
+ * session.sweep-interval-ms планировщик удаляет сессии чатов, которые так и не вернулись.
+ *
+ * Чтобы не сканировать все сессии, держим индекс дедлайнов "минута истечения -> чаты" (грубое колесо таймеров).
+ * touch() индекс не трогает: запись попадает в корзину при создании сессии, а при очистке
+ * ещё живая сессия просто перекладывается в корзину своего настоящего дедлайна.
+ *
+ * Явных шардов нет: ConcurrentHashMap сам блокирует отдельные корзины, а ConcurrentSkipListMap
+ * и наборы чатов в корзинах неблокирующие — отдельная разбивка по chatId конкуренцию не уменьшит.
+ */
+@Slf4j
 @Service
 public class SessionStore {
+
+    public record Stats(int sessions, long evictedTotal, long lastSweepEvicted) {}
+
     private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<Long>> deadlines = new ConcurrentSkipListMap<>();
+    private final int sweepBatchSize;
+
+    private final AtomicLong evictedTotal = new AtomicLong();
+    private volatile long lastSweepEvicted;
+
+    public SessionStore(@Value("${session.sweep-batch-size:1000}") int sweepBatchSize) {
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+    }
 
     public Session getOrCreate(long chatId) {
-        return sessions.computeIfAbsent(chatId, id -> new Session());
+        return sessions.computeIfAbsent(chatId, id -> {
+            Session s = new Session();
+            schedule(id, deadlineOf(s));
+            return s;
+        });
+    }
+
+    /**
+     * Сессия чата или null — без создания новой (для апдейтов, которым сессия не нужна).
+     */
+    public Session find(long chatId) {
+        return sessions.get(chatId);
     }
 
     public void reset(long chatId) {
@@ -22,8 +66,7 @@ public class SessionStore {
     }
 
     public boolean isExpired(Session s) {
-        Instant last = s.getLastActivityAt();
-        return Duration.between(last, Instant.now()).toMinutes() >= Constants.SESSION_TTL_MINUTES;
+        return isExpired(s, Instant.now());
     }
 
     public void setState(long chatId, UserState state) {
@@ -32,4 +75,82 @@ public class SessionStore {
             s.setState(state);
         }
     }
+
+    public Stats stats() {
+        return new Stats(sessions.size(), evictedTotal.get(), lastSweepEvicted);
+    }
+
+    @Scheduled(fixedDelayString = "${session.sweep-interval-ms:60000}")
+    public void sweep() {
+        int evicted = sweepExpired(Instant.now());
+        if (evicted > 0) {
+            log.info("Session sweep: evicted {} expired session(s), {} active", evicted, sessions.size());
+        }
+    }
+
+    /**
+     * Удаляет истёкшие сессии из корзин с прошедшим дедлайном, не больше sweepBatchSize за вызов
+     * (остаток доберёт следующий запуск). Возвращает число удалённых.
+     */
+    int sweepExpired(Instant now) {
+        int evicted = 0;
+        int visited = 0;
+        Map<Long, Set<Long>> due = deadlines.headMap(minuteOf(now), false);
+        Iterator<Map.Entry<Long, Set<Long>>> buckets = due.entrySet().iterator();
+        while (buckets.hasNext() && visited < sweepBatchSize) {
+            Set<Long> chatIds = buckets.next().getValue();
+            Iterator<Long> it = chatIds.iterator();
+            while (it.hasNext() && visited < sweepBatchSize) {
+                long chatId = it.next();
+                it.remove();
+                visited++;
+                if (evictIfExpired(chatId, now)) {
+                    evicted++;
+                }
+            }
+            if (chatIds.isEmpty()) {
+                buckets.remove();
+            }
+        }
+        lastSweepEvicted = evicted;
+        evictedTotal.addAndGet(evicted);
+        return evicted;
+    }
+
+    private boolean evictIfExpired(long chatId, Instant now) {
+        Session s = sessions.get(chatId);
+        if (s == null) {
+            return false; // уже сброшена через reset()
+        }
+        // под монитором сессии, как и Bot.touchOrExpire: не удаляем сессию, которую как раз "трогают"
+        synchronized (s) {
+            if (s.getState() == UserState.PROCESSING) {
+                // идёт обработка — сессию снимет сама обработка; проверим ещё раз через TTL
+                schedule(chatId, now.plus(Duration.ofMinutes(Constants.SESSION_TTL_MINUTES)));
+                return false;
+            }
+            if (!isExpired(s, now)) {
+                schedule(chatId, deadlineOf(s));
+                return false;
+            }
+            return sessions.remove(chatId, s);
+        }
+    }
+
+    private void schedule(long chatId, Instant deadline) {
+        deadlines.computeIfAbsent(minuteOf(deadline), m -> ConcurrentHashMap.newKeySet()).add(chatId);
+    }
+
+    private static boolean isExpired(Session s, Instant now) {
+        Instant last = s.getLastActivityAt();
+        return Duration.between(last, now).toMinutes() >= Constants.SESSION_TTL_MINUTES;
+    }
+
+    private static Instant deadlineOf(Session s) {
+        return s.getLastActivityAt().plus(Duration.ofMinutes(Constants.SESSION_TTL_MINUTES));
+    }
+
+    private static long minuteOf(Instant t) {
+        return Math.floorDiv(t.getEpochSecond(), 60);
+    }
 }
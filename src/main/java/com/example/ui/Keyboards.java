@@ -25,6 +25,13 @@ public final class Keyboards {
     }
 
     public static InlineKeyboardMarkup readyMenu() {
+        return readyMenu(false);
+    }
+
+    /**
+     * @param multipleFiles загружено больше одного файла — добавляем кнопку общего отчёта
+     */
+    public static InlineKeyboardMarkup readyMenu(boolean multipleFiles) {
         InlineKeyboardButton exportHelp = InlineKeyboardButton.builder()
                 .text("Как экспортировать чат")
                 .callbackData(Constants.CB_EXPORT_HELP)
@@ -38,10 +45,25 @@ public final class Keyboards {
                 .callbackData(Constants.CB_START_PROCESS)
                 .build();
 
+        if (!multipleFiles) {
+            return InlineKeyboardMarkup.builder()
+                    .keyboard(List.of(
+                            List.of(exportHelp, faq),
+                            List.of(process)
+                    ))
+                    .build();
+        }
+
+        InlineKeyboardButton processMerged = InlineKeyboardButton.builder()
+                .text("Один общий отчёт по всем файлам")
+                .callbackData(Constants.CB_START_PROCESS_MERGED)
+                .build();
+
         return InlineKeyboardMarkup.builder()
                 .keyboard(List.of(
                         List.of(exportHelp, faq),
-                        List.of(process)
+                        List.of(process),
+                        List.of(processMerged)
                 ))
                 .build();
     }
@@ -0,0 +1,77 @@
+package com.example.web;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Встроенный HTTP-сервер на server.port (JDK HttpServer, без servlet-контейнера).
+ *
+ * Компоненты регистрируют свои пути до {@link #start()}; если не зарегистрировано ни одного пути,
+ * порт не открывается (обычный long polling).
+ */
+@Slf4j
+@Component
+public class EmbeddedHttpServer {
+
+    private final int port;
+    private final int workers;
+    private final Map<String, HttpHandler> handlers = new LinkedHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public EmbeddedHttpServer(@Value("${server.port:8080}") int port,
+                              @Value("${server.workers:4}") int workers) {
+        this.port = port;
+        this.workers = Math.max(1, workers);
+    }
+
+    public synchronized void register(String path, HttpHandler handler) {
+        if (server != null) {
+            throw new IllegalStateException("HTTP server is already started");
+        }
+        handlers.put(path, handler);
+    }
+
+    /**
+     * Открывает порт, если есть зарегистрированные пути. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null || handlers.isEmpty()) return;
+        HttpServer s = HttpServer.create(new InetSocketAddress(port), 0);
+        handlers.forEach(s::createContext);
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("http-");
+        tf.setDaemon(true);
+        executor = Executors.newFixedThreadPool(workers, tf);
+        s.setExecutor(executor);
+        s.start();
+        server = s;
+        log.info("HTTP server listening on port {}: {}", port(), handlers.keySet());
+    }
+
+    /**
+     * Фактический порт (при server.port=0 — выбранный системой), -1 — сервер не запущен.
+     */
+    public synchronized int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        executor.shutdownNow();
+        server = null;
+    }
+}
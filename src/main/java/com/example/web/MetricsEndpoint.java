@@ -0,0 +1,54 @@
+package com.example.web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GET metrics.path (по умолчанию /metrics) на встроенном сервере — метрики в текстовом формате Prometheus.
+ */
+@Slf4j
+@Component
+public class MetricsEndpoint implements HttpHandler {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final String path;
+    private final PrometheusMeterRegistry registry;
+
+    public MetricsEndpoint(@Value("${metrics.path:/metrics}") String path, PrometheusMeterRegistry registry) {
+        this.path = path;
+        this.registry = registry;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public void register(EmbeddedHttpServer server) {
+        server.register(path, this);
+        log.info("Prometheus metrics endpoint: {}", path);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
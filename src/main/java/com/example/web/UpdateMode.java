@@ -0,0 +1,20 @@
+package com.example.web;
+
+/**
+ * Способ получения апдейтов от Telegram (telegram-bot.mode).
+ */
+public enum UpdateMode {
+    /**
+     * getUpdates из одного процесса (по умолчанию, входящий порт не нужен).
+     */
+    LONG_POLLING,
+    /**
+     * Telegram сам присылает апдейты POST-запросами на telegram-bot.webhook.url.
+     */
+    WEBHOOK;
+
+    public static UpdateMode fromProperty(String value) {
+        if (value == null || value.isBlank()) return LONG_POLLING;
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
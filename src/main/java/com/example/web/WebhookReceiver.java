@@ -0,0 +1,157 @@
+package com.example.web;
+
+import com.example.Bot;
+import com.example.processing.ProcessingExecutors;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Приём апдейтов в режиме webhook: Telegram присылает каждый апдейт POST-запросом с JSON.
+ *
+ * Апдейт передаётся в тот же обработчик, что и при long polling ({@link Bot#onUpdateReceived}), то есть
+ * в полосу его чата. Очередь ограничена: если необработанных апдейтов уже telegram-bot.webhook.queue-capacity,
+ * отвечаем 429 — Telegram повторит доставку позже, а память не растёт без предела.
+ *
+ * Ответы: 200 — принят, 400 — не JSON апдейта, 403 — неверный секрет (заголовок
+ * X-Telegram-Bot-Api-Secret-Token), 405 — не POST, 413 — слишком большое тело, 429 — очередь заполнена.
+ *
+ * Бин создаётся только при telegram-bot.mode=WEBHOOK.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "telegram-bot.mode", havingValue = "WEBHOOK")
+public class WebhookReceiver implements HttpHandler {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    static final int MAX_BODY_BYTES = 1 << 20;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final String path;
+    private final byte[] secret;
+    private final int queueCapacity;
+    private final Consumer<Update> sink;
+    private final IntSupplier backlog;
+
+    @Autowired
+    public WebhookReceiver(@Value("${telegram-bot.webhook.path:/telegram/webhook}") String path,
+                           @Value("${telegram-bot.webhook.secret:}") String secret,
+                           @Value("${telegram-bot.webhook.queue-capacity:1000}") int queueCapacity,
+                           Bot bot,
+                           ProcessingExecutors executors) {
+        this(path, secret, queueCapacity, bot::onUpdateReceived, () -> executors.updateLanes().pending());
+    }
+
+    /**
+     * @param sink    куда передать принятый апдейт (не должен блокироваться)
+     * @param backlog сколько апдейтов уже принято, но ещё не обработано
+     */
+    public WebhookReceiver(String path, String secret, int queueCapacity, Consumer<Update> sink, IntSupplier backlog) {
+        this.path = path;
+        this.secret = secret == null || secret.isBlank() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.sink = sink;
+        this.backlog = backlog;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Регистрирует путь на встроенном сервере и сообщает Telegram адрес webhook.
+     */
+    public void register(EmbeddedHttpServer server, Bot bot, String publicUrl) throws TelegramApiException {
+        if (publicUrl == null || publicUrl.isBlank()) {
+            throw new IllegalStateException("telegram-bot.webhook.url is required in WEBHOOK mode");
+        }
+        if (secret == null) {
+            log.warn("telegram-bot.webhook.secret is not set: webhook requests are not authenticated");
+        }
+        server.register(path, this);
+
+        SetWebhook setWebhook = new SetWebhook();
+        setWebhook.setUrl(publicUrl.replaceAll("/+$", "") + path);
+        if (secret != null) {
+            setWebhook.setSecretToken(new String(secret, StandardCharsets.UTF_8));
+        }
+        bot.execute(setWebhook);
+        log.info("Webhook registered: {}", setWebhook.getUrl());
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // тело читаем всегда (не больше лимита): недочитанный запрос рвёт keep-alive соединение
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                // слишком большое тело до конца не читаем: закрываем вход (сервер дочитает немного и бросит остаток)
+                // и соединение после ответа, чтобы хвост тела не приняли за следующий запрос
+                exchange.getRequestBody().close();
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405);
+                return;
+            }
+            if (secret != null && !secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                respond(exchange, 403);
+                return;
+            }
+            if (body == null) {
+                respond(exchange, 413);
+                return;
+            }
+            if (backlog.getAsInt() >= queueCapacity) {
+                respond(exchange, 429);
+                return;
+            }
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (IOException e) {
+                log.warn("Malformed webhook update: {}", e.getMessage());
+                respond(exchange, 400);
+                return;
+            }
+
+            sink.accept(update);
+            respond(exchange, 200);
+        }
+    }
+
+    private boolean secretMatches(String header) {
+        // сравнение за постоянное время
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Тело запроса или null, если оно больше {@link #MAX_BODY_BYTES}.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example;
+
+import com.example.core.cache.ResultCache;
+import com.example.enums.Constants;
+import com.example.enums.UserState;
+import com.example.metrics.PipelineMetrics;
+import com.example.processing.DownloadMode;
+import com.example.processing.OutboundDispatcher;
+import com.example.processing.ProcessingExecutors;
+import com.example.processing.ProcessingPlanner;
+import com.example.processing.ProcessingScheduler;
+import com.example.session.SessionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotTest {
+
+    private static final long CHAT = 42L;
+
+    private ProcessingExecutors executors;
+    private ProcessingScheduler scheduler;
+    private OutboundDispatcher outbound;
+    private SessionStore sessions;
+    private RecordingBot bot;
+
+    @BeforeEach
+    void setUp() {
+        executors = new ProcessingExecutors("PLATFORM", 2, 2, 2);
+        outbound = new OutboundDispatcher(1000, 1000, 100, 0, 1);
+        sessions = new SessionStore(100);
+        ProcessingPlanner planner = new ProcessingPlanner(DownloadMode.PIPELINED, 2, 1, 1 << 20, 32L << 20, 16L << 20,
+                5, 40, Duration.ofSeconds(30));
+        scheduler = new ProcessingScheduler(1, 10, executors);
+        bot = new RecordingBot(sessions, scheduler, executors,
+                new ResultCache(10, 1000, 30), outbound, planner, new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bot.download.countDown();
+        // в порядке остановки Spring: планировщик, пулы, отправка
+        scheduler.shutdown();
+        executors.shutdown();
+        outbound.shutdown();
+    }
+
+    @Test
+    void secondStartTapWhileProcessingKeepsSessionAndJob() throws Exception {
+        receive(document("a.json"));
+        receive(tap(Constants.CB_START_PROCESS));
+        bot.awaitText("Начинаю обработку");
+
+        receive(tap(Constants.CB_START_PROCESS));
+        bot.awaitText("Обработка уже выполняется");
+
+        assertEquals(UserState.PROCESSING, sessions.find(CHAT).getState());
+        assertTrue(bot.texts.stream().noneMatch(t -> t.contains("слишком много")), bot.texts.toString());
+
+        // файл, присланный во время обработки, в сессию не попадает
+        receive(document("b.json"));
+        bot.awaitText("Этот файл не войдет");
+        assertEquals(1, sessions.find(CHAT).getFiles().size());
+
+        bot.download.countDown();
+        bot.awaitText("Произошла ошибка при обработке");
+    }
+
+    private void receive(Update update) throws InterruptedException {
+        bot.onUpdateReceived(update);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executors.updateLanes().pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, executors.updateLanes().pending());
+    }
+
+    private static Update tap(String data) {
+        CallbackQuery cq = new CallbackQuery();
+        cq.setId("cq");
+        cq.setData(data);
+        cq.setMessage(message());
+        Update u = new Update();
+        u.setCallbackQuery(cq);
+        return u;
+    }
+
+    private static Update document(String name) {
+        Document d = new Document();
+        d.setFileId("id-" + name);
+        d.setFileUniqueId("uid-" + name);
+        d.setFileName(name);
+        d.setFileSize(100L);
+        Message m = message();
+        m.setDocument(d);
+        Update u = new Update();
+        u.setMessage(m);
+        return u;
+    }
+
+    private static Message message() {
+        Chat chat = new Chat();
+        chat.setId(CHAT);
+        Message m = new Message();
+        m.setChat(chat);
+        return m;
+    }
+
+    /**
+     * Bot без сети: сообщения запоминаются, GetFile ждёт download и падает.
+     */
+    private static final class RecordingBot extends Bot {
+        final List<String> texts = new CopyOnWriteArrayList<>();
+        final CountDownLatch download = new CountDownLatch(1);
+
+        RecordingBot(SessionStore sessions, ProcessingScheduler scheduler, ProcessingExecutors executors,
+                     ResultCache cache, OutboundDispatcher outbound, ProcessingPlanner planner, PipelineMetrics metrics) {
+            super("token", "test_bot", false, sessions, scheduler, executors, cache, outbound, planner, metrics);
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) throws TelegramApiException {
+            if (method instanceof SendMessage m) {
+                texts.add(m.getText());
+            } else if (method instanceof GetFile) {
+                try {
+                    download.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new TelegramApiException("offline");
+            }
+            return null;
+        }
+
+        void awaitText(String fragment) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (texts.stream().noneMatch(t -> t.contains(fragment)) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(texts.stream().anyMatch(t -> t.contains(fragment)), fragment + " not in " + texts);
+        }
+    }
+}
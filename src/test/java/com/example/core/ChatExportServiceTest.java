@@ -0,0 +1,74 @@
+package com.example.core;
+
+import com.example.core.cache.ResultCache;
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.example.core.parse.ParseMode;
+import com.example.core.parse.TelegramJsonExportParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatExportServiceTest {
+
+    private static final Path FIXTURE = Path.of("src/test/resources/fixtures/sample_export.json");
+
+    @Test
+    void streamedDownloadMatchesFileParse() throws Exception {
+        byte[] bytes = Files.readAllBytes(FIXTURE);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        ResultBundle streamed = ChatExportService.processJsonStream(closeTracking(bytes, closed), null);
+
+        ResultBundle expected = TelegramJsonExportParser.parse(FIXTURE);
+        assertEquals(new ArrayList<>(expected.participants()), new ArrayList<>(streamed.participants()));
+        assertEquals(new ArrayList<>(expected.mentions()), new ArrayList<>(streamed.mentions()));
+        assertEquals(new ArrayList<>(expected.channels()), new ArrayList<>(streamed.channels()));
+        assertTrue(closed.get(), "Download stream should be closed");
+    }
+
+    @Test
+    void contentHitSkipsTheParseInEveryMode() throws Exception {
+        ResultCache cache = new ResultCache(10, 10_000, 30);
+        // под ключом содержимого лежит заведомо другой результат: если бы файл разбирался, вернулся бы не он
+        ResultBundle stored = cache.put(ResultCache.contentKey(FIXTURE),
+                new ResultBundle(Set.of(new UserEntry("cached", null, null)), Set.of(), Set.of()));
+
+        for (ParseMode mode : ParseMode.values()) {
+            // пул кусков не нужен: до разбора дело не доходит
+            assertSame(stored, ChatExportService.processJsonFile(FIXTURE, mode, null, cache), mode.name());
+        }
+        assertEquals(ParseMode.values().length, cache.stats().hits());
+    }
+
+    @Test
+    void teesDownloadToDiskIncludingTrailingBytes(@TempDir Path temp) throws Exception {
+        byte[] bytes = (Files.readString(FIXTURE) + "\n\n   \n").getBytes();
+        Path copy = temp.resolve("copy.json");
+
+        ChatExportService.processJsonStream(new ByteArrayInputStream(bytes), copy);
+
+        assertArrayEquals(bytes, Files.readAllBytes(copy));
+    }
+
+    private static InputStream closeTracking(byte[] bytes, AtomicBoolean closed) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+    }
+}
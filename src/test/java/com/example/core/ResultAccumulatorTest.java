@@ -0,0 +1,120 @@
+package com.example.core;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.example.core.parse.ParseListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultAccumulatorTest {
+
+    @Test
+    void mergesFilesWithoutCrossFileDuplicatesKeepingFirstSeenOrder() {
+        ResultAccumulator acc = new ResultAccumulator();
+        acc.add(new ResultBundle(
+                set(new UserEntry("alice", "Alice", "https://t.me/alice"), new UserEntry(null, "Bob", null)),
+                set(new UserEntry("carol", null, "https://t.me/carol")),
+                set(new UserEntry("news", null, "https://t.me/news"))));
+        acc.add(new ResultBundle(
+                set(new UserEntry("dave", "Dave", "https://t.me/dave"), new UserEntry("ALICE", "Alice 2", null)),
+                set(new UserEntry("Carol", null, "https://t.me/Carol"), new UserEntry("erin", null, "https://t.me/erin")),
+                set(new UserEntry("NEWS", null, "https://t.me/NEWS"))));
+
+        ResultBundle merged = acc.toBundle();
+
+        assertEquals(2, acc.files());
+        assertEquals(List.of("Alice", "Bob", "Dave"),
+                merged.participants().stream().map(UserEntry::displayName).toList());
+        assertEquals(List.of("carol", "erin"),
+                merged.mentions().stream().map(UserEntry::username).toList());
+        assertEquals(List.of("news"),
+                merged.channels().stream().map(UserEntry::username).toList());
+    }
+
+    @Test
+    void countsUniqueUsersAcrossParticipantsAndMentionsWhileMerging() {
+        ResultAccumulator acc = new ResultAccumulator();
+        acc.add(new ResultBundle(
+                set(new UserEntry("alice", "Alice", null), new UserEntry("bob", "Bob", null)),
+                set(new UserEntry("carol", null, null)),
+                set()));
+        acc.add(new ResultBundle(
+                set(new UserEntry("Carol", "Carol", null)),
+                set(new UserEntry("ALICE", null, null), new UserEntry("dave", null, null)),
+                set(new UserEntry("news", null, null))));
+
+        assertEquals(3, acc.participantsCount());
+        assertEquals(4, acc.uniqueUsers());
+        assertEquals(acc.toBundle().uniqueUsersCount(), acc.uniqueUsers());
+    }
+
+    @Test
+    void passesRowsToListenerAfterThresholdAndKeepsOnlyKeys() {
+        List<String> rows = new ArrayList<>();
+        int[] finishedWith = {-1};
+        ResultAccumulator acc = new ResultAccumulator(2, new ParseListener() {
+            @Override
+            public void thresholdPassed(ResultBundle soFar) {
+                soFar.participants().forEach(u -> rows.add("p:" + u.username()));
+                soFar.mentions().forEach(u -> rows.add("m:" + u.username()));
+                soFar.channels().forEach(u -> rows.add("c:" + u.username()));
+            }
+
+            @Override
+            public void participant(UserEntry u) {
+                rows.add("p:" + u.username());
+            }
+
+            @Override
+            public void mention(UserEntry u) {
+                rows.add("m:" + u.username());
+            }
+
+            @Override
+            public void channel(UserEntry u) {
+                rows.add("c:" + u.username());
+            }
+
+            @Override
+            public void finished(int uniqueUsers) {
+                finishedWith[0] = uniqueUsers;
+            }
+        });
+        acc.add(new ResultBundle(
+                set(new UserEntry("alice", null, null), new UserEntry("bob", null, null)),
+                set(new UserEntry("carol", null, null)),
+                set()));
+        assertTrue(rows.isEmpty(), "Threshold is not passed yet");
+        acc.add(new ResultBundle(
+                set(new UserEntry("BOB", null, null), new UserEntry("dave", null, null), new UserEntry("erin", null, null)),
+                set(new UserEntry("Alice", null, null), new UserEntry("frank", null, null)),
+                set(new UserEntry("news", null, null))));
+
+        ResultBundle rest = acc.finish();
+
+        assertEquals(List.of("p:alice", "p:bob", "p:dave", "m:carol", "p:erin", "m:Alice", "m:frank", "c:news"), rows);
+        assertEquals(6, finishedWith[0]);
+        assertEquals(6, acc.uniqueUsers());
+        assertTrue(rest.participants().isEmpty() && rest.mentions().isEmpty() && rest.channels().isEmpty());
+    }
+
+    @Test
+    void emptyAccumulatorGivesEmptyBundle() {
+        ResultAccumulator acc = new ResultAccumulator();
+        ResultBundle merged = acc.toBundle();
+        assertEquals(0, acc.uniqueUsers());
+        assertTrue(merged.participants().isEmpty());
+        assertTrue(merged.mentions().isEmpty());
+        assertTrue(merged.channels().isEmpty());
+    }
+
+    private static Set<UserEntry> set(UserEntry... entries) {
+        return new LinkedHashSet<>(List.of(entries));
+    }
+}
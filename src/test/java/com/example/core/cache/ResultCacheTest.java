@@ -0,0 +1,84 @@
+package com.example.core.cache;
+
+import com.example.core.ChatExportService;
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedAndCountsHits() {
+        ResultCache cache = new ResultCache(2, 1_000, Duration.ofMinutes(30), System::nanoTime);
+        cache.put("a", bundle(1));
+        cache.put("b", bundle(1));
+        assertNotNull(cache.get("a"));   // "a" становится самым свежим
+        cache.put("c", bundle(1));       // вытесняет "b"
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.entries());
+    }
+
+    @Test
+    void boundsTotalWeightAndExpiresByTtl() {
+        AtomicLong now = new AtomicLong();
+        ResultCache cache = new ResultCache(10, 10, Duration.ofNanos(100), now::get);
+        cache.put("big", bundle(20));      // тяжелее всего кэша — не кладём
+        cache.put("a", bundle(4));
+        cache.put("b", bundle(4));         // 5 + 5 = 10 — влезает
+        cache.put("c", bundle(4));         // вытесняет "a"
+        assertNull(cache.get("big"));
+        assertNull(cache.get("a"));
+        assertEquals(10, cache.stats().weight());
+
+        now.addAndGet(100);
+        assertNull(cache.get("b"), "Entry must expire after TTL");
+    }
+
+    @Test
+    void processJsonFileReusesResultForSameContent(@TempDir Path temp) throws Exception {
+        Path fixture = Path.of("src/test/resources/fixtures/sample_export.json");
+        Path first = Files.copy(fixture, temp.resolve("01_result.json"));
+        Path second = Files.copy(fixture, temp.resolve("02_result.json"));
+        ResultCache cache = new ResultCache(10, 1_000, Duration.ofMinutes(30), System::nanoTime);
+
+        ResultBundle a = ChatExportService.processJsonFile(first, cache);
+        ResultBundle b = ChatExportService.processJsonFile(second, cache);
+
+        assertSame(a, b, "Same content must be served from cache");
+        assertEquals(1, cache.stats().hits());
+        assertThrows(UnsupportedOperationException.class, () -> b.participants().clear(), "Cached result must be read-only");
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        ResultCache cache = new ResultCache(0, 1_000, Duration.ofMinutes(30), System::nanoTime);
+        cache.put("a", bundle(1));
+        assertNull(cache.get("a"));
+        assertNull(ResultCache.uniqueIdKey(null));
+    }
+
+    private static ResultBundle bundle(int participants) {
+        Set<UserEntry> p = new LinkedHashSet<>();
+        for (int i = 0; i < participants; i++) {
+            p.add(new UserEntry("user" + i, null, null));
+        }
+        return new ResultBundle(p, new LinkedHashSet<>(), new LinkedHashSet<>());
+    }
+}
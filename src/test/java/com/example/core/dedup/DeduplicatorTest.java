@@ -3,7 +3,9 @@ package com.example.core.dedup;
 import com.example.core.model.UserEntry;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,4 +39,44 @@ class DeduplicatorTest {
         assertTrue(Deduplicator.isDeletedAccount(new UserEntry(null, "Удалённый аккаунт", null)));
         assertFalse(Deduplicator.isDeletedAccount(new UserEntry("bob", "Bob", null)));
     }
+
+    @Test
+    void detectsDeletedAccountIgnoringSurroundingWhitespace() {
+        assertTrue(Deduplicator.isDeletedAccount(new UserEntry(null, "  deleted ACCOUNT\t", null)));
+        assertFalse(Deduplicator.isDeletedAccount(new UserEntry(null, "deleted accounts", null)));
+        assertFalse(Deduplicator.isDeletedAccount(new UserEntry(null, null, null)));
+    }
+
+    @Test
+    void keyIsNormalizedFromFields() {
+        assertEquals("@alice", new UserEntry(" Alice ", null, null).key());
+        assertEquals("link:https://t.me/x", new UserEntry(null, "X", "https://t.me/X").key());
+        assertEquals("name:bob", new UserEntry(null, "Bob", null).key());
+        assertNull(new UserEntry(" ", "", null).key());
+        assertEquals(UserEntry.keyOf(null, "Bob", null), new UserEntry(null, "Bob", null).key());
+    }
+
+    @Test
+    void onePassMatchesDedupThenFilter() {
+        Set<UserEntry> input = new LinkedHashSet<>();
+        input.add(new UserEntry(null, "Deleted Account", null));
+        input.add(new UserEntry(null, "deleted account", null));   // тот же ключ — тоже выпадает
+        input.add(new UserEntry("Bob", "Bob", null));
+        input.add(new UserEntry("ghost", "Удалённый аккаунт", null));
+        input.add(new UserEntry("GHOST", "Ghost", null));           // ключ уже занят удалённым — выпадает
+        input.add(new UserEntry("bob", "Bob 2", null));
+        input.add(new UserEntry(null, null, null));
+        input.add(new UserEntry(null, "Carol", null));
+
+        List<UserEntry> expected = new ArrayList<>();
+        for (UserEntry u : Deduplicator.dedup(input)) {
+            if (!Deduplicator.isDeletedAccount(u)) expected.add(u);
+        }
+
+        Set<UserEntry> out = Deduplicator.dedupWithoutDeleted(input);
+        assertEquals(expected, new ArrayList<>(out));
+        assertEquals(2, out.size());
+        assertTrue(out.contains(new UserEntry("Bob", "Bob", null)));
+        assertFalse(out.contains(new UserEntry("bob", "Bob 2", null)));
+    }
 }
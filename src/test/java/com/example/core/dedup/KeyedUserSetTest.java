@@ -0,0 +1,95 @@
+package com.example.core.dedup;
+
+import com.example.core.model.UserEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedUserSetTest {
+
+    @Test
+    void dedupsOnInsertByKeyKeepingFirstSeen() {
+        KeyedUserSet set = new KeyedUserSet();
+        assertTrue(set.add(new UserEntry("Alice", "Alice", null)));
+        assertFalse(set.add(new UserEntry("alice", "Alice 2", null)));
+        assertFalse(set.add(new UserEntry(null, null, null)));
+        assertTrue(set.add(new UserEntry(null, "Bob", null)));
+
+        assertEquals(2, set.size());
+        assertEquals(List.of("Alice", "Bob"), set.stream().map(UserEntry::displayName).toList());
+        assertTrue(set.contains(new UserEntry("Alice", "Alice", null)));
+        assertFalse(set.contains(new UserEntry("alice", "Alice 2", null)));
+        assertTrue(set.containsKey("@alice"));
+    }
+
+    @Test
+    void deletedAccountClaimsKeyButIsNotReturned() {
+        KeyedUserSet set = KeyedUserSet.withoutDeleted();
+        assertFalse(set.add(new UserEntry("ghost", "Deleted Account", null)));
+        assertFalse(set.add(new UserEntry("Ghost", "Ghost", null)));
+        assertTrue(set.add(new UserEntry("bob", "Bob", null)));
+
+        assertEquals(1, set.size());
+        assertTrue(set.containsKey("@ghost"));
+        assertFalse(set.hasEntry("@ghost"));
+        assertTrue(set.hasEntry("@bob"));
+        assertEquals(List.of("bob"), set.stream().map(UserEntry::username).toList());
+        assertTrue(set.containsKey("@ghost"));
+    }
+
+    @Test
+    void matchesLegacyDedupThenFilterOnRandomInput() {
+        Random rnd = new Random(42);
+        String[] names = {"Deleted Account", "удалённый аккаунт", "Anna", "Boris", null, " "};
+        for (int round = 0; round < 200; round++) {
+            Set<UserEntry> raw = new LinkedHashSet<>();
+            for (int i = 0; i < 30; i++) {
+                String username = rnd.nextInt(3) == 0 ? null : (rnd.nextBoolean() ? "user" : "USER") + rnd.nextInt(5);
+                String link = rnd.nextInt(4) == 0 ? "https://t.me/L" + rnd.nextInt(3) : null;
+                raw.add(new UserEntry(username, names[rnd.nextInt(names.length)], link));
+            }
+
+            List<UserEntry> legacy = new ArrayList<>();
+            Map<String, UserEntry> byKey = new LinkedHashMap<>();
+            for (UserEntry u : raw) {
+                if (u.key() != null) byKey.putIfAbsent(u.key(), u);
+            }
+            for (UserEntry u : byKey.values()) {
+                if (!Deduplicator.isDeletedAccount(u)) legacy.add(u);
+            }
+
+            KeyedUserSet set = KeyedUserSet.withoutDeleted();
+            raw.forEach(set::add);
+            assertEquals(legacy, new ArrayList<>(set));
+            assertEquals(legacy.size(), set.size());
+        }
+    }
+
+    @Test
+    void keysOnlyReleasesEntriesButKeepsDedup() {
+        KeyedUserSet set = KeyedUserSet.withoutDeleted();
+        set.add(new UserEntry("alice", "Alice", null));
+        set.add(new UserEntry("ghost", "Deleted Account", null));
+
+        set.keepKeysOnly();
+
+        assertEquals(0, set.size());
+        assertFalse(set.iterator().hasNext());
+        assertTrue(set.hasEntry("@alice"));
+        assertFalse(set.hasEntry("@ghost"));
+        assertFalse(set.add(new UserEntry("ALICE", "Alice 2", null)));
+        assertFalse(set.add(new UserEntry("Ghost", "Ghost", null)));
+        assertTrue(set.add(new UserEntry("bob", "Bob", null)));
+        assertFalse(set.add(new UserEntry("bob", "Bob", null)));
+        assertTrue(set.hasEntry("@bob"));
+        assertEquals(0, set.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.core.dedup;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniqueUsersTest {
+
+    @Test
+    void countsUsersPresentInBothSetsOnceByKey() {
+        Set<UserEntry> participants = set(
+                new UserEntry("alice", "Alice", "https://t.me/alice"),
+                new UserEntry(null, "Bob", null),
+                new UserEntry("carol", "Carol", null));
+        // тот же пользователь в упоминаниях — другая запись (без имени, другой регистр), но тот же ключ
+        Set<UserEntry> mentions = set(
+                new UserEntry("Alice", null, "https://t.me/Alice"),
+                new UserEntry("dave", null, "https://t.me/dave"));
+
+        assertEquals(4, UniqueUsers.count(participants, mentions));
+        assertEquals(4, UniqueUsers.count(mentions, participants));
+        assertEquals(4, new ResultBundle(participants, mentions, Set.of()).uniqueUsersCount());
+    }
+
+    @Test
+    void probesKeyedSetDirectly() {
+        KeyedUserSet participants = KeyedUserSet.withoutDeleted();
+        participants.add(new UserEntry("ghost", "Deleted Account", null));
+        participants.add(new UserEntry("alice", "Alice", null));
+        Set<UserEntry> mentions = set(new UserEntry("ghost", null, null), new UserEntry("ALICE", null, null));
+
+        // удалённый аккаунт в участниках не учтён, значит упомянутый ghost — отдельный пользователь
+        assertEquals(2, UniqueUsers.count(participants, mentions));
+        assertEquals(2, UniqueUsers.count(mentions, participants));
+    }
+
+    @Test
+    void emptySets() {
+        assertEquals(0, UniqueUsers.count(Set.of(), Set.of()));
+        assertEquals(1, UniqueUsers.count(set(new UserEntry("a", null, null)), Set.of()));
+    }
+
+    @Test
+    void cachedResultCountsTheSameAsFreshParse() {
+        KeyedUserSet participants = new KeyedUserSet();
+        participants.addAll(users(0, 3_000));
+        KeyedUserSet mentions = new KeyedUserSet();
+        mentions.addAll(users(2_000, 5_000));
+        mentions.add(new UserEntry("USER10", null, null));
+        ResultBundle fresh = new ResultBundle(participants, mentions, Set.of());
+
+        // результат в кэше хранится колонками UserTable — счёт тот же
+        ResultBundle cached = fresh.compact();
+
+        assertEquals(5_000, fresh.uniqueUsersCount());
+        assertEquals(5_000, cached.uniqueUsersCount());
+        assertEquals(5_000, UniqueUsers.count(cached.participants(), users(2_000, 5_000)));
+        assertEquals(5_000, UniqueUsers.count(users(0, 3_000), users(2_000, 5_000)));
+    }
+
+    private static Set<UserEntry> users(int from, int to) {
+        Set<UserEntry> s = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            s.add(new UserEntry("user" + i, "User " + i, null));
+        }
+        return s;
+    }
+
+    private static Set<UserEntry> set(UserEntry... entries) {
+        return new LinkedHashSet<>(List.of(entries));
+    }
+}
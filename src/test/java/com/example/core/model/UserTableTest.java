@@ -0,0 +1,111 @@
+package com.example.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserTableTest {
+
+    @Test
+    void compactBundleReadsBackTheSameEntriesInOrder() {
+        ResultBundle bundle = sample();
+
+        ResultBundle compact = bundle.compact();
+
+        assertEquals(new ArrayList<>(bundle.participants()), new ArrayList<>(compact.participants()));
+        assertEquals(new ArrayList<>(bundle.mentions()), new ArrayList<>(compact.mentions()));
+        assertEquals(new ArrayList<>(bundle.channels()), new ArrayList<>(compact.channels()));
+        assertEquals(bundle, compact);
+        assertSame(compact, compact.compact());
+        assertTrue(compact.mentions().contains(new UserEntry("bob", null, "https://t.me/bob")));
+        assertFalse(compact.mentions().contains(new UserEntry("bob", null, null)));
+    }
+
+    @Test
+    void containsFindsEveryRowAndOnlyExactMatches() {
+        List<UserEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new UserEntry("user" + i, "User " + i, "https://t.me/user" + i));
+        }
+        // одинаковый ключ дедупа, разные поля
+        entries.add(new UserEntry("USER1", null, null));
+        entries.add(new UserEntry(null, null, null));
+        Set<UserEntry> view = UserTable.of(entries, new StringPool()).asSet();
+
+        for (UserEntry u : entries) {
+            assertTrue(view.contains(u), u.toString());
+        }
+        assertFalse(view.contains(new UserEntry("user1", null, null)));
+        assertFalse(view.contains(new UserEntry("user1000", "User 1000", "https://t.me/user1000")));
+        assertFalse(view.contains("user1"));
+    }
+
+    @Test
+    void containsKeyMatchesByDedupKey() {
+        UserTable table = UserTable.of(List.of(
+                new UserEntry("Alice", "Alice A", "https://t.me/Alice"),
+                new UserEntry(null, "Bob", null)), new StringPool());
+
+        assertTrue(table.containsKey(new UserEntry("alice", null, null).key()));
+        assertTrue(table.containsKey(new UserEntry(null, "Bob", null).key()));
+        assertFalse(table.containsKey(new UserEntry("carol", null, null).key()));
+        assertFalse(table.containsKey(null));
+    }
+
+    @Test
+    void derivesTmeLinksAndKeepsOthers() {
+        UserTable table = UserTable.of(List.of(
+                new UserEntry("bob", null, "https://t.me/bob"),
+                new UserEntry("carol", null, "https://t.me/someone_else"),
+                new UserEntry("dave", null, null),
+                new UserEntry(null, "Eve", "https://example.com/eve")), new StringPool());
+
+        assertEquals("https://t.me/bob", table.link(0));
+        assertEquals("https://t.me/someone_else", table.link(1));
+        assertNull(table.link(2));
+        assertEquals("https://example.com/eve", table.link(3));
+
+        List<String> viaRows = new ArrayList<>();
+        for (UserRow row : table.rows()) {
+            viaRows.add(row.username() + "|" + row.displayName() + "|" + row.link());
+        }
+        assertEquals(List.of("bob|null|https://t.me/bob", "carol|null|https://t.me/someone_else",
+                "dave|null|null", "null|Eve|https://example.com/eve"), viaRows);
+    }
+
+    @Test
+    void sharesStringsAcrossColumnsAndIsReadOnly() {
+        ResultBundle compact = sample().compact();
+
+        UserTable participants = UserTable.backing(compact.participants());
+        UserTable mentions = UserTable.backing(compact.mentions());
+        assertNotNull(participants);
+        assertSame(participants.username(0), mentions.username(1), "Same username should be pooled");
+
+        assertSame(participants.rows().getClass(), UserTable.rowsOf(compact.participants()).getClass());
+        Set<UserEntry> plain = sample().participants();
+        assertSame(plain, UserTable.rowsOf(plain));
+
+        assertThrows(UnsupportedOperationException.class, () -> compact.mentions().clear());
+        assertThrows(UnsupportedOperationException.class, () -> compact.mentions().add(new UserEntry("x", null, null)));
+    }
+
+    private static ResultBundle sample() {
+        var participants = new LinkedHashSet<UserEntry>();
+        participants.add(new UserEntry(new String("alice"), "Alice", "https://t.me/alice"));
+        participants.add(new UserEntry(null, "Без username", null));
+
+        var mentions = new LinkedHashSet<UserEntry>();
+        mentions.add(new UserEntry("bob", null, "https://t.me/bob"));
+        mentions.add(new UserEntry(new String("alice"), null, "https://t.me/alice"));
+
+        var channels = new LinkedHashSet<UserEntry>();
+        channels.add(new UserEntry("my_channel", null, "https://t.me/my_channel"));
+        return new ResultBundle(participants, mentions, channels);
+    }
+}
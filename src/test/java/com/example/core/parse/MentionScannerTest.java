@@ -0,0 +1,93 @@
+package com.example.core.parse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MentionScannerTest {
+
+    // Прежние выражения парсера — эталон, с которым сверяем сканер
+    private static final Pattern MENTION_RE = Pattern.compile("(?<!\\w)@([A-Za-z0-9_]{3,})");
+    private static final Pattern TME_RE = Pattern.compile("(?i)(?:https?://)?t\\.me/(?:s/)?([A-Za-z0-9_]{3,})(?:\\b|/|\\?)");
+
+    @Test
+    void matchesRegexOnEdgeCases() {
+        List<String> samples = List.of(
+                "Hello @bob, check https://t.me/my_channel",
+                "mail@example.com @ab @abc @@double a@b_c_d",
+                "@start and end@ and @end",
+                "T.ME/Upper t.Me/s/preview t.me/s/ab t.me/s t.me/sabc",
+                "at.me/glued https://t.me/abc/t.me/def t.me/abct.me/xyz",
+                "@somet.me/channel t.me/@notchannel t.me/abc?start=1",
+                "кириллица @имя @name_1 т.me/fake",
+                "",
+                "@",
+                "t.me/"
+        );
+        for (String s : samples) {
+            assertScanMatchesRegex(s);
+        }
+    }
+
+    @Test
+    void matchesRegexOnRandomInput() {
+        String alphabet = "@t.meTMEs/ab_1 ?:hpsд";
+        Random rnd = new Random(42);
+        for (int n = 0; n < 5000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int len = rnd.nextInt(40);
+            for (int i = 0; i < len; i++) {
+                sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+            }
+            assertScanMatchesRegex(sb.toString());
+        }
+    }
+
+    @Test
+    void firstTokenHelpersMatchSingleFind() {
+        assertEquals("alice", MentionScanner.firstMention("Alice @alice @bob"));
+        assertNull(MentionScanner.firstMention("Bob"));
+        assertEquals("chan2", MentionScanner.firstChannel("https://t.me/chan2/15"));
+        assertNull(MentionScanner.firstChannel("https://example.com"));
+        assertNull(MentionScanner.firstChannel(null));
+    }
+
+    private static void assertScanMatchesRegex(String s) {
+        List<String> mentions = new ArrayList<>();
+        List<String> channels = new ArrayList<>();
+        MentionScanner.scan(s, new MentionScanner.Sink() {
+            @Override
+            public void mention(CharSequence text, int start, int end) {
+                mentions.add(text.subSequence(start, end).toString());
+            }
+
+            @Override
+            public void channel(CharSequence text, int start, int end) {
+                channels.add(text.subSequence(start, end).toString());
+            }
+        });
+
+        assertEquals(findAll(MENTION_RE, s), mentions, () -> "mentions in: " + s);
+        assertEquals(findAll(TME_RE, s), channels, () -> "channels in: " + s);
+
+        List<String> allMentions = findAll(MENTION_RE, s);
+        List<String> allChannels = findAll(TME_RE, s);
+        assertEquals(allMentions.isEmpty() ? null : allMentions.get(0), MentionScanner.firstMention(s), () -> "first mention in: " + s);
+        assertEquals(allChannels.isEmpty() ? null : allChannels.get(0), MentionScanner.firstChannel(s), () -> "first channel in: " + s);
+    }
+
+    private static List<String> findAll(Pattern p, String s) {
+        List<String> out = new ArrayList<>();
+        Matcher m = p.matcher(s);
+        while (m.find()) {
+            out.add(m.group(1));
+        }
+        return out;
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.core.parse;
 
 import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,4 +38,226 @@ class TelegramJsonExportParserTest {
         assertTrue(result.channels().stream().anyMatch(u -> "chan2".equalsIgnoreCase(u.username())), "Should capture chan2");
         assertTrue(result.channels().stream().anyMatch(u -> "chan3".equalsIgnoreCase(u.username())), "Should capture chan3");
     }
+
+    @Test
+    void streamingModeMatchesTreeModeOnFixture() throws Exception {
+        Path fixture = Path.of("src/test/resources/fixtures/sample_export.json");
+        assertSameResult(TelegramJsonExportParser.parse(fixture), TelegramJsonExportParser.parseStreaming(fixture));
+    }
+
+    @Test
+    void streamingModeMatchesTreeModeOnIrregularExport(@TempDir Path temp) throws Exception {
+        // Поля в разном порядке, лишние вложенные структуры, не-объекты в messages, регистр username
+        String json = """
+                {
+                  "name": "Irregular",
+                  "extra": {"messages": [{"from": "Ghost @ghost"}]},
+                  "messages": [
+                    "not an object",
+                    {"text_entities": [{"type": "mention", "text": "@Zed"}], "from": "Zed @Zed", "text": "hi @zed"},
+                    {"from": {"nested": true}, "text": null, "media": {"a": [1, 2, {"b": "@nope"}]}},
+                    {"from": 42, "text": ["see ", {"type": "text_link", "text": "x", "href": "https://t.me/s/Chan_One"}, "t.me/chan_one"]},
+                    {"from": "Удалённый аккаунт", "text": "@eve"},
+                    {"from": "zed @zed", "text": ""}
+                  ],
+                  "tail": [1, 2, 3]
+                }
+                """;
+        Path file = temp.resolve("irregular.json");
+        Files.writeString(file, json);
+
+        ResultBundle tree = TelegramJsonExportParser.parse(file);
+        ResultBundle streaming = TelegramJsonExportParser.parseStreaming(file);
+
+        assertSameResult(tree, streaming);
+        assertSameResult(tree, TelegramJsonExportParser.parseMapped(file));
+        assertSameResult(tree, TelegramJsonExportParser.parseParallel(file, ForkJoinPool.commonPool(), 1));
+        assertTrue(streaming.participants().stream().noneMatch(u -> "ghost".equals(u.username())), "Only top-level messages should be read");
+    }
+
+    @Test
+    void mappedModeMatchesTreeModeOnFixture() throws Exception {
+        Path fixture = Path.of("src/test/resources/fixtures/sample_export.json");
+        assertSameResult(TelegramJsonExportParser.parse(fixture), TelegramJsonExportParser.parseMapped(fixture));
+    }
+
+    @Test
+    void mappedStreamReadsAcrossWindows() throws Exception {
+        Path fixture = Path.of("src/test/resources/fixtures/sample_export.json");
+        byte[] expected = Files.readAllBytes(fixture);
+        // окно в 7 байт: и read(byte[]), и skip() многократно пересекают границы отображения
+        try (MappedInputStream in = new MappedInputStream(fixture, 7)) {
+            assertEquals(expected[0] & 0xFF, in.read());
+            assertEquals(10, in.skip(10));
+            byte[] rest = in.readAllBytes();
+            assertEquals(expected.length - 11, rest.length);
+            assertEquals(expected[11], rest[0]);
+            assertEquals(expected[expected.length - 1], rest[rest.length - 1]);
+            assertEquals(-1, in.read());
+        }
+        try (MappedInputStream in = new MappedInputStream(fixture, 7)) {
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+        try (MappedInputStream in = new MappedInputStream(fixture, 7)) {
+            assertSameResult(TelegramJsonExportParser.parse(fixture), TelegramJsonExportParser.parseStreaming(in));
+        }
+    }
+
+    @Test
+    void parallelModeMatchesStreamingOnRandomExports(@TempDir Path temp) throws Exception {
+        Random rnd = new Random(7);
+        String[] authors = {"Anna", "anna @Anna", "Deleted Account", "Boris @boris", "BORIS @Boris", "Удалённый аккаунт", "Eve"};
+        String[] texts = {
+                "\"hi @carol and t.me/Chan_A\"",
+                "\"quote \\\" , ] } [ { @dave\"",
+                "[\"see \", {\"type\": \"mention\", \"text\": \"@Carol\"}, \"t.me/s/chan_a\"]",
+                "[{\"type\": \"text_link\", \"text\": \"x\", \"href\": \"https://t.me/ChanB\"}, \", @eve\"]",
+                "\"\"",
+                "null"
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                StringBuilder json = new StringBuilder("{\"name\": \"messages\", \"about\": [\"messages\", {\"messages\": [1]}],\n \"messages\": [");
+                int count = 50 + rnd.nextInt(200);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) json.append(",\n  ");
+                    if (rnd.nextInt(30) == 0) {
+                        json.append("\"not an object\"");
+                        continue;
+                    }
+                    json.append("{\"id\": ").append(i)
+                            .append(", \"media\": {\"sizes\": [[1, 2], {\"x\": \"]\"}]}")
+                            .append(", \"from\": \"").append(authors[rnd.nextInt(authors.length)]).append('"')
+                            .append(", \"text\": ").append(texts[rnd.nextInt(texts.length)]);
+                    if (rnd.nextBoolean()) {
+                        json.append(", \"text_entities\": [{\"type\": \"mention\", \"text\": \"@user").append(rnd.nextInt(20)).append("\"}]");
+                    }
+                    json.append('}');
+                }
+                json.append("],\n \"tail\": {\"k\": \"v\"}}");
+                Path file = temp.resolve("random-" + round + ".json");
+                Files.writeString(file, json);
+
+                ResultBundle expected = TelegramJsonExportParser.parseStreaming(file);
+                assertSameResult(TelegramJsonExportParser.parse(file), expected);
+                for (int chunk : new int[]{1, 64, 512, 1 << 20}) {
+                    assertSameResult(expected, TelegramJsonExportParser.parseParallel(file, pool, chunk));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelModeFailsOnMalformedExportLikeSequential(@TempDir Path temp) throws Exception {
+        Path truncated = temp.resolve("truncated.json");
+        Files.writeString(truncated, "{\"messages\": [{\"from\": \"A\"}, {\"from\": \"B\"");
+        assertThrows(IOException.class, () -> TelegramJsonExportParser.parseStreaming(truncated));
+        assertThrows(IOException.class, () -> TelegramJsonExportParser.parseParallel(truncated, ForkJoinPool.commonPool(), 1));
+
+        Path broken = temp.resolve("broken.json");
+        Files.writeString(broken, "{\"messages\": [{\"from\": \"A\"}, {\"from\" \"B\"}, {\"from\": \"C\"}]}");
+        assertThrows(IOException.class, () -> TelegramJsonExportParser.parseParallel(broken, ForkJoinPool.commonPool(), 1));
+    }
+
+    @Test
+    void listenerTakesOverRowsOncePastParticipantsThreshold(@TempDir Path temp) throws Exception {
+        Path file = temp.resolve("big.json");
+        Files.writeString(file, randomExport(new Random(11), 400));
+        ResultBundle expected = TelegramJsonExportParser.parseStreaming(file);
+        assertTrue(expected.participants().size() > 50);
+
+        for (boolean streaming : new boolean[]{true, false}) {
+            RecordingListener listener = new RecordingListener();
+            ResultBundle rest = streaming
+                    ? TelegramJsonExportParser.parseStreaming(file, 50, listener)
+                    : TelegramJsonExportParser.parse(file, 50, listener);
+
+            // всё найденное — у слушателя, в том же порядке; в итоге разбора записей нет
+            assertEquals(1, listener.thresholdCalls);
+            assertEquals(51, listener.participantsAtThreshold);
+            assertSameResult(expected, listener.rows());
+            assertTrue(rest.participants().isEmpty() && rest.mentions().isEmpty() && rest.channels().isEmpty());
+            assertEquals(expected.uniqueUsersCount(), listener.uniqueUsers);
+        }
+    }
+
+    @Test
+    void listenerIsNotCalledBelowThreshold(@TempDir Path temp) throws Exception {
+        Path file = temp.resolve("small.json");
+        Files.writeString(file, randomExport(new Random(3), 400));
+        ResultBundle expected = TelegramJsonExportParser.parseStreaming(file);
+
+        RecordingListener listener = new RecordingListener();
+        ResultBundle result = TelegramJsonExportParser.parseStreaming(file, expected.participants().size(), listener);
+
+        assertEquals(0, listener.thresholdCalls);
+        assertEquals(-1, listener.uniqueUsers);
+        assertSameResult(expected, result);
+    }
+
+    private static String randomExport(Random rnd, int messages) {
+        StringBuilder json = new StringBuilder("{\"messages\": [");
+        for (int i = 0; i < messages; i++) {
+            if (i > 0) json.append(",\n");
+            int author = rnd.nextInt(150);
+            String from = author % 17 == 0 ? "Deleted Account" : "User " + author + " @user" + author;
+            json.append("{\"from\": \"").append(from)
+                    .append("\", \"text\": \"hi @user").append(rnd.nextInt(300))
+                    .append(" t.me/chan").append(rnd.nextInt(40)).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static final class RecordingListener implements ParseListener {
+        final List<UserEntry> participants = new ArrayList<>();
+        final List<UserEntry> mentions = new ArrayList<>();
+        final List<UserEntry> channels = new ArrayList<>();
+        int thresholdCalls;
+        int participantsAtThreshold;
+        int uniqueUsers = -1;
+
+        @Override
+        public void thresholdPassed(ResultBundle soFar) {
+            thresholdCalls++;
+            participantsAtThreshold = soFar.participants().size();
+            participants.addAll(soFar.participants());
+            mentions.addAll(soFar.mentions());
+            channels.addAll(soFar.channels());
+        }
+
+        @Override
+        public void participant(UserEntry u) {
+            participants.add(u);
+        }
+
+        @Override
+        public void mention(UserEntry u) {
+            mentions.add(u);
+        }
+
+        @Override
+        public void channel(UserEntry u) {
+            channels.add(u);
+        }
+
+        @Override
+        public void finished(int uniqueUsers) {
+            this.uniqueUsers = uniqueUsers;
+        }
+
+        ResultBundle rows() {
+            return new ResultBundle(new LinkedHashSet<>(participants), new LinkedHashSet<>(mentions),
+                    new LinkedHashSet<>(channels));
+        }
+    }
+
+    private static void assertSameResult(ResultBundle expected, ResultBundle actual) {
+        // сравниваем списками, чтобы проверить и порядок первого появления
+        assertEquals(new ArrayList<>(expected.participants()), new ArrayList<>(actual.participants()));
+        assertEquals(new ArrayList<>(expected.mentions()), new ArrayList<>(actual.mentions()));
+        assertEquals(new ArrayList<>(expected.channels()), new ArrayList<>(actual.channels()));
+    }
 }
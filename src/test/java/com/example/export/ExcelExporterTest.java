@@ -71,4 +71,62 @@ class ExcelExporterTest {
             assertEquals("@my_channel", channelsSheet.getRow(3).getCell(1).getStringCellValue());
         }
     }
+
+    @Test
+    void streamingExportMatchesInMemoryExport(@TempDir Path temp) throws Exception {
+        var participants = new LinkedHashSet<UserEntry>();
+        var mentions = new LinkedHashSet<UserEntry>();
+        var channels = new LinkedHashSet<UserEntry>();
+        // больше окна SXSSF, чтобы часть строк точно ушла на диск
+        for (int i = 0; i < 1_000; i++) {
+            participants.add(new UserEntry("user" + i, "User " + i, "https://t.me/user" + i));
+            mentions.add(new UserEntry("mention" + i, null, "https://t.me/mention" + i));
+        }
+        channels.add(new UserEntry(null, null, "https://t.me/+invite"));
+
+        ResultBundle bundle = new ResultBundle(participants, mentions, channels);
+        Path xssf = ExcelExporter.export(bundle, temp.resolve("xssf"));
+        Path sxssf = ExcelExporter.exportStreaming(bundle, temp.resolve("sxssf"));
+
+        try (InputStream a = Files.newInputStream(xssf); XSSFWorkbook expected = new XSSFWorkbook(a);
+             InputStream b = Files.newInputStream(sxssf); XSSFWorkbook actual = new XSSFWorkbook(b)) {
+            assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+            for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+                var e = expected.getSheetAt(s);
+                var a2 = actual.getSheetAt(s);
+                assertEquals(e.getSheetName(), a2.getSheetName());
+                assertEquals(e.getLastRowNum(), a2.getLastRowNum());
+                assertEquals(3, a2.getPaneInformation().getHorizontalSplitPosition(), "Header must stay frozen");
+                assertTrue(a2.getRow(2).getCell(0).getCellStyle().getFont().getBold(), "Header must stay bold");
+                for (int r = 2; r <= e.getLastRowNum(); r++) {
+                    // колонка 0 — время экспорта, у двух выгрузок может отличаться
+                    for (int c = 1; c < 5; c++) {
+                        assertEquals(e.getRow(r).getCell(c).getStringCellValue(), a2.getRow(r).getCell(c).getStringCellValue(),
+                                e.getSheetName() + " row " + r + " col " + c);
+                    }
+                }
+                assertTrue(a2.getColumnWidth(1) > 0 && a2.getColumnWidth(1) <= 12000);
+            }
+            assertEquals("https://t.me/+invite", actual.getSheet("Каналы").getRow(3).getCell(1).getStringCellValue());
+        }
+    }
+
+    @Test
+    void compactResultExportsSameCells(@TempDir Path temp) throws Exception {
+        var participants = new LinkedHashSet<UserEntry>();
+        participants.add(new UserEntry("alice", "Alice", "https://t.me/alice"));
+        var mentions = new LinkedHashSet<UserEntry>();
+        mentions.add(new UserEntry("bob", null, "https://t.me/bob"));
+        var channels = new LinkedHashSet<UserEntry>();
+        channels.add(new UserEntry(null, null, "https://example.com/x"));
+        ResultBundle compact = new ResultBundle(participants, mentions, channels).compact();
+
+        Path xlsx = ExcelExporter.exportStreaming(compact, temp);
+
+        try (InputStream in = Files.newInputStream(xlsx); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+            assertEquals("Alice", wb.getSheet("Участники").getRow(3).getCell(1).getStringCellValue());
+            assertEquals("@bob", wb.getSheet("Упоминания").getRow(3).getCell(1).getStringCellValue());
+            assertEquals("https://example.com/x", wb.getSheet("Каналы").getRow(3).getCell(1).getStringCellValue());
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.example.export;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.parse.TelegramJsonExportParser;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExcelSpillWriterTest {
+
+    @Test
+    void spilledParseWritesSameWorkbookAsExportAfterParse(@TempDir Path temp) throws Exception {
+        Path json = temp.resolve("export.json");
+        Files.writeString(json, export(600));
+
+        ResultBundle full = TelegramJsonExportParser.parseStreaming(json);
+        Path expectedXlsx = ExcelExporter.exportStreaming(full, temp.resolve("expected"));
+
+        Path spilledXlsx = temp.resolve("spilled").resolve("participants_01.xlsx");
+        try (ExcelSpillWriter writer = new ExcelSpillWriter(spilledXlsx)) {
+            TelegramJsonExportParser.parseStreaming(json, 50, writer);
+            assertTrue(writer.spilled());
+            assertEquals(full.participants().size(), writer.participantsCount());
+            assertEquals(full.mentions().size(), writer.mentionsCount());
+            assertEquals(full.channels().size(), writer.channelsCount());
+            assertEquals(full.uniqueUsersCount(), writer.uniqueUsers());
+            assertEquals(spilledXlsx, writer.finish());
+        }
+
+        try (InputStream a = Files.newInputStream(expectedXlsx); XSSFWorkbook expected = new XSSFWorkbook(a);
+             InputStream b = Files.newInputStream(spilledXlsx); XSSFWorkbook actual = new XSSFWorkbook(b)) {
+            assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+            for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+                var e = expected.getSheetAt(s);
+                var a2 = actual.getSheetAt(s);
+                assertEquals(e.getSheetName(), a2.getSheetName());
+                assertEquals(e.getLastRowNum(), a2.getLastRowNum());
+                assertEquals(3, a2.getPaneInformation().getHorizontalSplitPosition(), "Header must stay frozen");
+                for (int r = 2; r <= e.getLastRowNum(); r++) {
+                    // колонка 0 — время экспорта
+                    for (int c = 1; c < 5; c++) {
+                        assertEquals(e.getRow(r).getCell(c).getStringCellValue(), a2.getRow(r).getCell(c).getStringCellValue(),
+                                e.getSheetName() + " row " + r + " col " + c);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void smallChatDoesNotCreateWorkbook(@TempDir Path temp) throws Exception {
+        Path json = temp.resolve("export.json");
+        Files.writeString(json, export(10));
+
+        Path xlsx = temp.resolve("participants_01.xlsx");
+        try (ExcelSpillWriter writer = new ExcelSpillWriter(xlsx)) {
+            ResultBundle result = TelegramJsonExportParser.parseStreaming(json, 50, writer);
+            assertFalse(writer.spilled());
+            assertEquals(10, result.participants().size());
+            assertThrows(IllegalStateException.class, writer::finish);
+        }
+        assertFalse(Files.exists(xlsx));
+    }
+
+    private static String export(int authors) {
+        StringBuilder json = new StringBuilder("{\"messages\": [");
+        for (int i = 0; i < authors * 2; i++) {
+            if (i > 0) json.append(",\n");
+            int author = i % authors;
+            json.append("{\"from\": \"User ").append(author)
+                    .append("\", \"text\": \"hi @user").append(i % 700)
+                    .append(" t.me/chan").append(i % 30).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.export;
+
+import com.example.core.model.UserEntry;
+import com.example.core.model.UserRow;
+import org.junit.jupiter.api.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedEntriesTest {
+
+    @Test
+    void ordersMixedCyrillicAndLatinLikeRussianCollator() {
+        List<String> names = List.of("Яна", "bob", "ёлка", "Ёжик", "Alice", "елка", "ежевика", "Борис", "анна",
+                "Zed", "user9", "user10", "ЕЛЬ", "Ёж", "ёж", "Еж");
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("ru"));
+        collator.setStrength(Collator.SECONDARY);
+        List<String> expected = new ArrayList<>(names);
+        expected.sort(collator);
+
+        List<String> actual = SortedEntries.of(entries(names), UserRow::displayName).stream()
+                .map(UserRow::displayName).toList();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void matchesRussianCollatorOnRandomLettersAndDigits() {
+        String alphabet = "0189aAbBkKzZаАбБеЕёЁжЖйЙъЪьЬэЭюЮяЯ";
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("ru"));
+        collator.setStrength(Collator.SECONDARY);
+        Random random = new Random(22);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomString(random, alphabet);
+            String b = randomString(random, alphabet);
+            assertEquals(Integer.signum(collator.compare(a, b)),
+                    Integer.signum(SortedEntries.collationKey(a).compareTo(SortedEntries.collationKey(b))),
+                    () -> a + " vs " + b);
+        }
+    }
+
+    @Test
+    void otherCharactersSortByCodeUnitAfterCaseFolding() {
+        // не Collator: пробел и знаки — по коду (раньше букв), эмодзи — после кириллицы
+        List<String> names = List.of("😀 smile", "ann", "_ann", "Ann-Mari", "ann mari", "анна", "!ann");
+        List<String> actual = SortedEntries.of(entries(names), UserRow::displayName).stream()
+                .map(UserRow::displayName).toList();
+
+        assertEquals(List.of("!ann", "_ann", "ann", "ann mari", "Ann-Mari", "анна", "😀 smile"), actual);
+    }
+
+    @Test
+    void equalKeysKeepInsertionOrder() {
+        List<String> actual = SortedEntries.of(entries(List.of("bob", "Bob", "BOB", "alice")), UserRow::displayName)
+                .stream().map(UserRow::displayName).toList();
+
+        assertEquals(List.of("alice", "bob", "Bob", "BOB"), actual);
+    }
+
+    @Test
+    void firstKMatchesFullSortAndKeysAreComputedOnce() {
+        Random random = new Random(7);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            names.add(Long.toString(random.nextLong(), 36));
+        }
+        AtomicInteger keyCalls = new AtomicInteger();
+
+        SortedEntries sorted = SortedEntries.of(entries(names), u -> {
+            keyCalls.incrementAndGet();
+            return u.displayName();
+        });
+        List<String> first = sorted.first(100).stream().map(UserRow::displayName).toList();
+
+        List<String> expected = new ArrayList<>(names);
+        expected.sort(Comparator.comparing(SortedEntries::collationKey));
+        assertEquals(expected.subList(0, 100), first);
+        assertEquals(names.size(), keyCalls.get());
+        assertEquals(names.size(), sorted.stream().count(), "Every stream() is a fresh pass");
+    }
+
+    private static List<UserEntry> entries(List<String> names) {
+        return names.stream().map(n -> new UserEntry(null, n, null)).toList();
+    }
+
+    private static String randomString(Random random, String alphabet) {
+        char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+}
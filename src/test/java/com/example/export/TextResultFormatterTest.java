@@ -4,8 +4,14 @@ import com.example.core.model.ResultBundle;
 import com.example.core.model.UserEntry;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -42,4 +48,125 @@ class TextResultFormatterTest {
         // Channels note
         assertTrue(out.contains("Каналы/ссылки"));
     }
+
+    // вывод format() до перехода на построчную сборку (исходная реализация на StringBuilder)
+    private static final String BASELINE_REPORT = """
+            Файлы: a.json, b.json
+            Количество участников: 6
+            Количество упоминаний: 3
+
+            Участники:
+            - (unknown)
+            - alice
+            - @bob
+            - @Carol
+            - https://t.me/+invite
+            - Борис
+
+            Упоминания:
+            - Anna
+            - @Bob
+            - @dave
+
+            Каналы/ссылки: 2 (в Excel будут отдельной вкладкой)
+            """;
+
+    private static final String BASELINE_EMPTY_REPORT = """
+            Количество участников: 0
+            Количество упоминаний: 0
+
+            Участники:
+            - (не найдено)
+
+            Упоминания:
+            - (не найдено)
+            """;
+
+    @Test
+    void matchesBaselineReport() {
+        var participants = new LinkedHashSet<UserEntry>();
+        participants.add(new UserEntry("zed", "Борис", "https://t.me/zed"));
+        participants.add(new UserEntry("bob", null, "https://t.me/bob"));
+        participants.add(new UserEntry(null, "alice", null));
+        participants.add(new UserEntry(null, null, "https://t.me/+invite"));
+        participants.add(new UserEntry("Carol", null, null));
+        participants.add(new UserEntry(null, null, null));
+        var mentions = new LinkedHashSet<UserEntry>();
+        mentions.add(new UserEntry("dave", "Dave D", null));
+        mentions.add(new UserEntry(null, "Anna", null));
+        mentions.add(new UserEntry("Bob", null, null));
+        var channels = new LinkedHashSet<UserEntry>();
+        channels.add(new UserEntry("news", null, "https://t.me/news"));
+        channels.add(new UserEntry("blog", null, "https://t.me/blog"));
+        ResultBundle result = new ResultBundle(participants, mentions, channels);
+        List<String> files = List.of("a.json", "b.json");
+
+        assertEquals(BASELINE_REPORT, TextResultFormatter.format(files, result));
+        assertEquals(BASELINE_REPORT, String.join("\n", TextResultFormatter.lines(files, result).toList()) + "\n");
+        assertEquals(BASELINE_REPORT, TextResultFormatter.format(files, result.compact()));
+        // помещается в одно сообщение: одна страница без завершающего перевода строки
+        Iterator<String> pages = TextResultFormatter.pages(TextResultFormatter.lines(files, result),
+                TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS);
+        assertEquals(BASELINE_REPORT.stripTrailing(), pages.next());
+        assertFalse(pages.hasNext());
+
+        ResultBundle empty = new ResultBundle(Set.of(), Set.of(), Set.of());
+        assertEquals(BASELINE_EMPTY_REPORT, TextResultFormatter.format(List.of(), empty));
+        assertEquals(BASELINE_EMPTY_REPORT, TextResultFormatter.format(empty));
+    }
+
+    @Test
+    void pagesFitTelegramLimitAndBreakOnLines() {
+        var participants = new LinkedHashSet<UserEntry>();
+        for (int i = 0; i < 50; i++) {
+            participants.add(new UserEntry("user" + i, "Очень длинное отображаемое имя участника номер " + i + " ".repeat(40) + "🙂", null));
+        }
+        var mentions = new LinkedHashSet<UserEntry>();
+        for (int i = 0; i < 400; i++) {
+            mentions.add(new UserEntry("mentioned_user_with_long_name_" + i, null, null));
+        }
+        ResultBundle result = new ResultBundle(participants, mentions, Set.of());
+
+        List<String> lines = TextResultFormatter.lines(List.of("chat.json"), result).toList();
+        assertEquals(lines, TextResultFormatter.lines(List.of("chat.json"), result.compact()).toList());
+
+        List<String> pages = new ArrayList<>();
+        TextResultFormatter.pages(TextResultFormatter.lines(List.of("chat.json"), result),
+                TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS).forEachRemaining(pages::add);
+
+        assertTrue(pages.size() > 1, "Report should not fit into one message");
+        for (String page : pages) {
+            assertTrue(page.length() <= TextResultFormatter.TELEGRAM_MAX_MESSAGE_CHARS);
+            assertFalse(page.startsWith("\n") || page.endsWith("\n"));
+        }
+        // те же непустые строки, в том же порядке, ни одна не разорвана
+        List<String> expected = lines.stream().filter(l -> !l.isBlank()).toList();
+        List<String> actual = pages.stream().flatMap(p -> p.lines()).filter(l -> !l.isBlank()).toList();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void splitsOverlongLineWithoutBreakingSurrogatePairs() {
+        String line = "a" + "🙂".repeat(10);
+
+        List<String> pages = new ArrayList<>();
+        TextResultFormatter.pages(Stream.of("head", line, "tail"), 4).forEachRemaining(pages::add);
+
+        assertEquals(List.of("head", "a🙂", "🙂🙂", "🙂🙂", "🙂🙂", "🙂🙂", "🙂", "tail"), pages);
+    }
+
+    @Test
+    void buildsPagesLazily() {
+        AtomicInteger consumed = new AtomicInteger();
+        Stream<String> lines = IntStream.range(0, 10_000).mapToObj(i -> {
+            consumed.incrementAndGet();
+            return "- line " + i;
+        });
+
+        Iterator<String> pages = TextResultFormatter.pages(lines, 100);
+        String first = pages.next();
+
+        assertTrue(first.startsWith("- line 0\n"));
+        assertTrue(consumed.get() < 50, "Only the first page should be built, consumed " + consumed.get());
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.metrics;
+
+import com.example.core.model.ResultBundle;
+import com.example.core.model.UserEntry;
+import com.example.metrics.PipelineMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    void timesStagesByOutcomeAndCountsErrors() {
+        assertEquals("ok", metrics.time(Stage.PARSE, () -> "ok"));
+        assertThrows(IOException.class, () -> metrics.time(Stage.PARSE, () -> {
+            throw new IOException("broken json");
+        }));
+        metrics.run(Stage.DEDUP, () -> {});
+
+        assertEquals(1, timerCount(Stage.PARSE, "success"));
+        assertEquals(1, timerCount(Stage.PARSE, "error"));
+        assertEquals(1, timerCount(Stage.DEDUP, "success"));
+        assertEquals(0, timerCount(Stage.EXPORT, "success"));
+        assertEquals(1, registry.get("bot.pipeline.errors")
+                .tags("stage", "parse", "exception", "IOException").counter().count());
+    }
+
+    @Test
+    void recordsBytesEntriesAndQueueWait() {
+        ResultBundle result = new ResultBundle(
+                Set.of(new UserEntry("@a", "A", "https://t.me/a"), new UserEntry("@b", "B", "https://t.me/b")),
+                Set.of(new UserEntry("@c", "C", "https://t.me/c")),
+                Set.of());
+
+        metrics.downloaded(1024);
+        metrics.downloaded(0);
+        metrics.found(result);
+        metrics.queueWait(Duration.ofMillis(250));
+
+        assertEquals(1, registry.get("bot.pipeline.downloaded").summary().count());
+        assertEquals(1024, registry.get("bot.pipeline.downloaded").summary().totalAmount());
+        assertEquals(2, registry.get("bot.pipeline.entries").tag("kind", "participants").counter().count());
+        assertEquals(1, registry.get("bot.pipeline.entries").tag("kind", "mentions").counter().count());
+        assertEquals(0, registry.get("bot.pipeline.entries").tag("kind", "channels").counter().count());
+        assertEquals(250, registry.get("bot.processing.queue.wait").timer()
+                .totalTime(TimeUnit.MILLISECONDS), 1);
+    }
+
+    private long timerCount(Stage stage, String outcome) {
+        return registry.get("bot.pipeline.stage").tags("stage", stage.name().toLowerCase(), "outcome", outcome)
+                .timer().count();
+    }
+}
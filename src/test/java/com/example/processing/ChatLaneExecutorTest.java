@@ -0,0 +1,162 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatLaneExecutorTest {
+
+    @Test
+    void keepsOrderWithinChatAndNeverRunsOneChatConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            ChatLaneExecutor lanes = new ChatLaneExecutor(pool);
+            int chats = 20;
+            int perChat = 200;
+            Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+            Map<Long, AtomicInteger> running = new ConcurrentHashMap<>();
+            AtomicInteger overlaps = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(chats * perChat);
+
+            for (int i = 0; i < perChat; i++) {
+                for (long chat = 0; chat < chats; chat++) {
+                    long chatId = chat;
+                    int n = i;
+                    lanes.execute(chatId, () -> {
+                        if (running.computeIfAbsent(chatId, k -> new AtomicInteger()).incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        seen.computeIfAbsent(chatId, k -> Collections.synchronizedList(new ArrayList<>())).add(n);
+                        running.get(chatId).decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, overlaps.get());
+            for (long chat = 0; chat < chats; chat++) {
+                List<Integer> order = seen.get(chat);
+                assertEquals(perChat, order.size());
+                for (int i = 0; i < perChat; i++) {
+                    assertEquals(i, order.get(i), "Updates of chat " + chat + " must stay in order");
+                }
+            }
+            waitUntil(() -> lanes.pending() == 0 && lanes.activeChats() == 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void slowChatDoesNotBlockOtherChats() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            ChatLaneExecutor lanes = new ChatLaneExecutor(pool);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch otherDone = new CountDownLatch(1);
+            List<String> slowChat = Collections.synchronizedList(new ArrayList<>());
+
+            lanes.execute(1L, () -> {
+                await(release);
+                slowChat.add("first");
+            });
+            lanes.execute(1L, () -> slowChat.add("second"));
+            lanes.execute(2L, otherDone::countDown);
+
+            assertTrue(otherDone.await(5, TimeUnit.SECONDS), "Other chat should run while chat 1 is busy");
+            assertTrue(slowChat.isEmpty());
+            release.countDown();
+            waitUntil(() -> slowChat.size() == 2);
+            assertEquals(List.of("first", "second"), slowChat);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheLane() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            ChatLaneExecutor lanes = new ChatLaneExecutor(pool);
+            CountDownLatch after = new CountDownLatch(1);
+            lanes.execute(1L, () -> {
+                throw new IllegalStateException("boom");
+            });
+            lanes.execute(1L, after::countDown);
+            assertTrue(after.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedLaneIsReleased() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        pool.shutdown();
+        ChatLaneExecutor lanes = new ChatLaneExecutor(pool);
+        AtomicInteger ran = new AtomicInteger();
+
+        lanes.execute(1L, ran::incrementAndGet);
+
+        assertEquals(0, lanes.pending());
+        assertEquals(0, lanes.activeChats());
+        assertTrue(lanes.shutdownAndDrain(Duration.ofMillis(100)), "Nothing is left to drain");
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void rejectedContinuationDrainsInPlace() {
+        // первая задача полосы принята, продолжение после MAX_BATCH — уже нет
+        List<Runnable> accepted = new ArrayList<>();
+        ChatLaneExecutor lanes = new ChatLaneExecutor(r -> {
+            if (!accepted.isEmpty()) throw new RejectedExecutionException("stopped");
+            accepted.add(r);
+        });
+        int tasks = ChatLaneExecutor.MAX_BATCH * 2 + 5;
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int n = i;
+            lanes.execute(1L, () -> seen.add(n));
+        }
+
+        accepted.get(0).run();
+
+        assertEquals(tasks, seen.size());
+        for (int i = 0; i < tasks; i++) {
+            assertEquals(i, seen.get(i));
+        }
+        assertEquals(0, lanes.pending());
+        assertEquals(0, lanes.activeChats());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.processing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundDispatcherTest {
+
+    @Test
+    void keepsPerChatOrderAndLimitsPerChatRate() throws Exception {
+        OutboundDispatcher outbound = new OutboundDispatcher(1000, 20, 1, 0, 4);
+        try {
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                int n = i;
+                futures.add(outbound.submit(1L, OutboundDispatcher.Priority.BULK, () -> {
+                    order.add(n);
+                    return n;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+            // 20 в секунду без запаса: 10 сообщений — не быстрее ~450 мс
+            assertTrue(elapsedMillis >= 400, "Per-chat rate should be enforced, took " + elapsedMillis + " ms");
+            assertEquals(10, outbound.stats().sent());
+        } finally {
+            outbound.shutdown();
+        }
+    }
+
+    @Test
+    void interactiveRepliesOvertakeBulkResultsOfOtherChats() throws Exception {
+        // глобально 10 в секунду: очередь из массовой отправки копится
+        OutboundDispatcher outbound = new OutboundDispatcher(10, 100, 100, 0, 1);
+        try {
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                String tag = "bulk" + i;
+                futures.add(outbound.submit(100L + i, OutboundDispatcher.Priority.BULK, () -> {
+                    order.add(tag);
+                    return tag;
+                }));
+            }
+            Thread.sleep(100);
+            futures.add(outbound.submit(1L, OutboundDispatcher.Priority.INTERACTIVE, () -> {
+                order.add("reply");
+                return "reply";
+            }));
+            futures.get(futures.size() - 1).get(5, TimeUnit.SECONDS);
+
+            int replyAt = order.indexOf("reply");
+            assertTrue(replyAt >= 0 && replyAt < 20, "Interactive reply should not wait for all bulk sends: " + order);
+        } finally {
+            outbound.shutdown();
+        }
+    }
+
+    @Test
+    void retriesAfterRetryAfterOn429() throws Exception {
+        OutboundDispatcher outbound = new OutboundDispatcher(1000, 1000, 10, 2, 2);
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            long start = System.nanoTime();
+            String result = outbound.sendAndWait(1L, OutboundDispatcher.Priority.BULK, () -> {
+                if (calls.incrementAndGet() == 1) {
+                    throw tooManyRequests(1);
+                }
+                return "ok";
+            });
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals("ok", result);
+            assertEquals(2, calls.get());
+            assertTrue(elapsedMillis >= 900, "Should wait retry_after before retrying, took " + elapsedMillis + " ms");
+            OutboundDispatcher.Stats stats = outbound.stats();
+            assertEquals(1, stats.rateLimited());
+            assertEquals(1, stats.retried());
+        } finally {
+            outbound.shutdown();
+        }
+    }
+
+    @Test
+    void nonRetryableErrorIsReturnedToCaller() {
+        OutboundDispatcher outbound = new OutboundDispatcher(1000, 1000, 10, 3, 1);
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            TelegramApiException e = assertThrows(TelegramApiException.class,
+                    () -> outbound.sendAndWait(1L, OutboundDispatcher.Priority.INTERACTIVE, () -> {
+                        calls.incrementAndGet();
+                        throw new TelegramApiException("Bad Request: chat not found");
+                    }));
+
+            assertEquals("Bad Request: chat not found", e.getMessage());
+            assertEquals(1, calls.get());
+            assertEquals(1, outbound.stats().failed());
+        } finally {
+            outbound.shutdown();
+        }
+    }
+
+    @Test
+    void differentChatsAreSentConcurrently() throws Exception {
+        OutboundDispatcher outbound = new OutboundDispatcher(1000, 1000, 10, 0, 2);
+        try {
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            CompletableFuture<Boolean> a = outbound.submit(1L, OutboundDispatcher.Priority.BULK, () -> awaitOther(bothStarted));
+            CompletableFuture<Boolean> b = outbound.submit(2L, OutboundDispatcher.Priority.BULK, () -> awaitOther(bothStarted));
+            assertTrue(a.get(5, TimeUnit.SECONDS));
+            assertTrue(b.get(5, TimeUnit.SECONDS));
+        } finally {
+            outbound.shutdown();
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static TelegramApiRequestException tooManyRequests(int retryAfter) {
+        try {
+            ApiResponse<?> response = new ObjectMapper().readValue(
+                    "{\"ok\": false, \"error_code\": 429, \"description\": \"Too Many Requests: retry after " + retryAfter + "\"," +
+                            " \"parameters\": {\"retry_after\": " + retryAfter + "}}",
+                    ApiResponse.class);
+            return new TelegramApiRequestException("Error sending message", response);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
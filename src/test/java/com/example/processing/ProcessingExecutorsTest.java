@@ -0,0 +1,77 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingExecutorsTest {
+
+    @Test
+    void platformDownloadsDoNotTakeParseThreads() throws Exception {
+        ProcessingExecutors executors = new ProcessingExecutors("PLATFORM", 1, 2, 1);
+        try {
+            assertEquals(ExecutionMode.PLATFORM, executors.mode());
+            assertNotSame(executors.parsePool(), executors.ioExecutor());
+
+            // скачивания заняли все потоки ввода-вывода, а парсинг всё равно идёт
+            CountDownLatch network = new CountDownLatch(1);
+            CountDownLatch parsed = new CountDownLatch(1);
+            executors.ioExecutor().execute(() -> await(network));
+            executors.ioExecutor().execute(() -> await(network));
+            executors.parsePool().execute(parsed::countDown);
+            assertTrue(parsed.await(5, TimeUnit.SECONDS));
+            network.countDown();
+        } finally {
+            executors.shutdown();
+        }
+    }
+
+    @Test
+    void parallelParseChunksRunOnOwnSizedPool() {
+        ProcessingExecutors executors = new ProcessingExecutors("PLATFORM", 1, 1, 1, 3);
+        try {
+            assertEquals(3, executors.chunkPool().getParallelism());
+            assertNotSame(ForkJoinPool.commonPool(), executors.chunkPool());
+            String thread = executors.chunkPool().submit(() -> Thread.currentThread().getName()).join();
+            assertTrue(thread.startsWith("parse-chunk-"), thread);
+        } finally {
+            executors.shutdown();
+        }
+        assertTrue(executors.chunkPool().isTerminated());
+    }
+
+    @Test
+    void shutdownDrainsAcceptedUpdatesAndStopsPools() {
+        ProcessingExecutors executors = new ProcessingExecutors("PLATFORM", 1, 1, 1);
+        CountDownLatch first = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        executors.updateLanes().execute(1L, () -> {
+            await(first);
+            handled.incrementAndGet();
+        });
+        executors.updateLanes().execute(1L, handled::incrementAndGet);
+        first.countDown();
+
+        executors.shutdown();
+
+        assertEquals(2, handled.get(), "Updates accepted before shutdown are handled");
+        executors.updateLanes().execute(1L, handled::incrementAndGet);
+        assertEquals(0, executors.updateLanes().pending(), "Updates after shutdown are dropped");
+        assertTrue(executors.parsePool().isTerminated());
+        assertTrue(executors.ioExecutor().isTerminated());
+        assertTrue(executors.chunkPool().isTerminated());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.processing;
+
+import com.example.core.parse.ParseMode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingPlannerTest {
+
+    private static final long MB = 1L << 20;
+
+    @Test
+    void choosesParseModeBySize() {
+        ProcessingPlanner planner = planner(DownloadMode.FILE, 4);
+
+        List<ProcessingPlan.FilePlan> files = planner.plan(List.of(0L, MB / 2, 5 * MB, 40 * MB)).files();
+
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.STREAMING, false, false), files.get(0));
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.TREE, false, false), files.get(1));
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.STREAMING, false, false), files.get(2));
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.PARALLEL, false, true), files.get(3));
+    }
+
+    @Test
+    void pipelinedModeStreamsEverythingButParallelCandidates() {
+        List<ProcessingPlan.FilePlan> files = planner(DownloadMode.PIPELINED, 4).plan(List.of(0L, MB / 2, 40 * MB)).files();
+
+        assertTrue(files.get(0).pipelined());
+        assertTrue(files.get(1).pipelined());
+        assertEquals(ParseMode.PARALLEL, files.get(2).parseMode());
+        assertFalse(files.get(2).pipelined());
+
+        // на одном ядре параллельный разбор не даёт выигрыша
+        ProcessingPlan.FilePlan single = planner(DownloadMode.PIPELINED, 1).plan(List.of(40 * MB)).files().get(0);
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.STREAMING, true, true), single);
+    }
+
+    @Test
+    void estimatesTimeAndWarnsAboutLongRuns() {
+        ProcessingPlanner planner = planner(DownloadMode.PIPELINED, 1);
+
+        ProcessingPlan small = planner.plan(List.of(MB, 2 * MB));
+        assertFalse(small.longRunning());
+        assertFalse(small.streamingExcel());
+        assertEquals(3 * MB, small.totalBytes());
+
+        // 2 файла по 15 МБ из потока: скачивание 15 с на файл, 2 файла одновременно — около 15 с
+        ProcessingPlan big = planner.plan(List.of(15 * MB, 15 * MB));
+        assertEquals(Duration.ofSeconds(15), big.estimate());
+        assertTrue(big.longRunning());
+        assertTrue(big.streamingExcel(), "Merged report of 30 MB should stream Excel");
+        assertFalse(big.files().get(0).streamingExcel());
+    }
+
+    @Test
+    void defaultsStreamCloudSizedFilesFromDownload() {
+        // значения по умолчанию из application.properties
+        ProcessingPlanner planner = new ProcessingPlanner("PIPELINED", 4, 1048576, 33554432, 8388608, 5, 40, 30);
+
+        ProcessingPlan.FilePlan largest = planner.plan(List.of(ProcessingPlanner.CLOUD_BOT_API_MAX_BYTES)).files().get(0);
+        assertEquals(new ProcessingPlan.FilePlan(ParseMode.STREAMING, true, true), largest,
+                "Files from the cloud Bot API are parsed from the download stream, not in parallel");
+        assertFalse(planner.plan(List.of(4 * MB)).files().get(0).streamingExcel());
+    }
+
+    private static ProcessingPlanner planner(DownloadMode mode, int cpus) {
+        return new ProcessingPlanner(mode, 2, cpus, MB, 32 * MB, 16 * MB, 1, 10, Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingSchedulerTest {
+
+    @Test
+    void limitsConcurrencyAndReportsQueuePositions() throws Exception {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1, 2);
+        try {
+            limitsConcurrencyAndReportsQueuePositions(scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void limitsConcurrencyAndReportsQueuePositions(ProcessingScheduler scheduler) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+        Runnable blocking = () -> {
+            await(release);
+            allDone.countDown();
+        };
+
+        assertEquals(0, scheduler.submit(1L, blocking).position(), "First job starts immediately");
+        assertEquals(1, scheduler.submit(2L, blocking).position());
+        assertEquals(2, scheduler.submit(3L, blocking).position());
+        ProcessingScheduler.Admission full = scheduler.submit(4L, blocking);
+        assertFalse(full.accepted(), "Queue is full");
+        assertEquals(ProcessingScheduler.Rejection.QUEUE_FULL, full.rejection());
+
+        assertEquals(2, scheduler.queuePosition(3L));
+        assertEquals(1, scheduler.stats().activeJobs());
+        assertEquals(2, scheduler.stats().queueDepth());
+        assertEquals(1, scheduler.stats().rejectedJobs());
+
+        release.countDown();
+        assertTrue(allDone.await(5, TimeUnit.SECONDS));
+        waitUntilIdle(scheduler);
+        assertEquals(3, scheduler.stats().completedJobs());
+    }
+
+    @Test
+    void chatCannotHoldMoreThanOneJob() throws Exception {
+        ProcessingScheduler scheduler = new ProcessingScheduler(2, 10);
+        try {
+            chatCannotHoldMoreThanOneJob(scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void chatCannotHoldMoreThanOneJob(ProcessingScheduler scheduler) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(scheduler.submit(1L, () -> await(release)).accepted());
+        ProcessingScheduler.Admission duplicate = scheduler.submit(1L, () -> {});
+        assertFalse(duplicate.accepted(), "Second job of the same chat is rejected");
+        assertEquals(ProcessingScheduler.Rejection.CHAT_BUSY, duplicate.rejection());
+        assertTrue(scheduler.submit(2L, () -> {}).accepted(), "Other chats are not affected");
+
+        release.countDown();
+        waitUntilIdle(scheduler);
+        assertTrue(scheduler.submit(1L, () -> {}).accepted(), "Chat can submit again after its job finished");
+    }
+
+    @Test
+    void shutdownFinishesRunningJobDropsQueueAndRejectsNewOnes() throws Exception {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean runningFinished = new AtomicBoolean();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        scheduler.submit(1L, () -> {
+            started.countDown();
+            await(release);
+            runningFinished.set(true);
+        });
+        assertTrue(scheduler.submit(2L, () -> queuedRan.set(true)).queued());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Thread stopper = new Thread(scheduler::shutdown);
+        stopper.start();
+        // очередь пустеет только от shutdown: первая задача ещё держит единственный слот
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.stats().queueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        stopper.join(5000);
+
+        assertFalse(stopper.isAlive(), "Shutdown waits only for the running job");
+        assertTrue(runningFinished.get());
+        assertFalse(queuedRan.get(), "Queued job is dropped");
+        assertEquals(0, scheduler.stats().queueDepth());
+        assertEquals(ProcessingScheduler.Rejection.SHUTTING_DOWN, scheduler.submit(3L, () -> {}).rejection());
+    }
+
+    private static void waitUntilIdle(ProcessingScheduler scheduler) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.stats().activeJobs() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, scheduler.stats().activeJobs());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.session;
+
+import com.example.enums.Constants;
+import com.example.enums.UserState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    private static final Duration AFTER_TTL = Duration.ofMinutes(Constants.SESSION_TTL_MINUTES + 2);
+
+    @Test
+    void sweepEvictsExpiredSessionsInBoundedBatches() {
+        SessionStore store = new SessionStore(2);
+        for (long chatId = 1; chatId <= 5; chatId++) {
+            store.getOrCreate(chatId);
+        }
+        Instant later = Instant.now().plus(AFTER_TTL);
+
+        assertEquals(0, store.sweepExpired(Instant.now()), "Nothing is due yet");
+        assertEquals(2, store.sweepExpired(later));
+        assertEquals(2, store.sweepExpired(later));
+        assertEquals(1, store.sweepExpired(later));
+        assertEquals(0, store.stats().sessions());
+        assertEquals(5, store.stats().evictedTotal());
+    }
+
+    @Test
+    void sweepKeepsProcessingSessions() {
+        SessionStore store = new SessionStore(100);
+        store.getOrCreate(1L).setState(UserState.PROCESSING);
+        store.getOrCreate(2L);
+
+        assertEquals(1, store.sweepExpired(Instant.now().plus(AFTER_TTL)));
+        assertNotNull(store.find(1L), "Session in PROCESSING must not be evicted");
+        assertNull(store.find(2L));
+    }
+
+    @Test
+    void findDoesNotCreateSession() {
+        SessionStore store = new SessionStore(100);
+        assertNull(store.find(42L));
+        assertEquals(0, store.stats().sessions());
+
+        store.getOrCreate(42L);
+        store.reset(42L);
+        assertEquals(0, store.sweepExpired(Instant.now().plus(AFTER_TTL)), "Reset session leaves only a stale index entry");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.web;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private EmbeddedHttpServer server;
+    private URI uri;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        MetricsEndpoint endpoint = new MetricsEndpoint("/metrics", registry);
+        server = new EmbeddedHttpServer(0, 1);
+        endpoint.register(server);
+        server.start();
+        uri = URI.create("http://localhost:" + server.port() + endpoint.path());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void servesPrometheusText() throws Exception {
+        registry.counter("bot.pipeline.errors", "stage", "parse").increment(3);
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(MetricsEndpoint.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+        assertTrue(response.body().contains("bot_pipeline_errors_total{stage=\"parse\",} 3.0"), response.body());
+    }
+
+    @Test
+    void rejectsOtherMethods() throws Exception {
+        HttpResponse<Void> response = client.send(
+                HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("x")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(405, response.statusCode());
+    }
+}
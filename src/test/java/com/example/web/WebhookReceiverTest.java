@@ -0,0 +1,107 @@
+package com.example.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Локальный HttpClient в роли Telegram: шлёт апдейты на встроенный сервер.
+ */
+class WebhookReceiverTest {
+
+    private static final String SECRET = "test-secret_123";
+    private static final String UPDATE = """
+            {"update_id": 1001,
+             "message": {"message_id": 7, "date": 1700000000, "text": "/start",
+                         "chat": {"id": 42, "type": "private"},
+                         "from": {"id": 42, "is_bot": false, "first_name": "Anna"},
+                         "some_new_field": {"x": 1}}}
+            """;
+
+    private final List<Update> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private EmbeddedHttpServer server;
+    private URI uri;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        WebhookReceiver receiver = new WebhookReceiver("/telegram/webhook", SECRET, 2, received::add, backlog::get);
+        server = new EmbeddedHttpServer(0, 2);
+        server.register(receiver.path(), receiver);
+        server.start();
+        uri = URI.create("http://localhost:" + server.port() + receiver.path());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void acceptsUpdateWithValidSecret() throws Exception {
+        assertEquals(200, post(UPDATE, SECRET).statusCode());
+
+        assertEquals(1, received.size());
+        Update update = received.get(0);
+        assertEquals(1001, update.getUpdateId());
+        assertEquals(42L, update.getMessage().getChatId());
+        assertEquals("/start", update.getMessage().getText());
+    }
+
+    @Test
+    void rejectsWrongSecretMethodAndMalformedBody() throws Exception {
+        assertEquals(403, post(UPDATE, "wrong").statusCode());
+        assertEquals(403, post(UPDATE, null).statusCode());
+
+        HttpResponse<Void> get = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(405, get.statusCode());
+
+        assertEquals(400, post("{not json", SECRET).statusCode());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void oversizedBodyGets413AndClosesConnection() throws Exception {
+        HttpResponse<Void> tooLarge = post("x".repeat(4 * WebhookReceiver.MAX_BODY_BYTES), SECRET);
+        assertEquals(413, tooLarge.statusCode());
+        assertEquals("close", tooLarge.headers().firstValue("Connection").orElse(null),
+                "Unread rest of the body must not be taken for the next request");
+        assertTrue(received.isEmpty());
+
+        assertEquals(200, post(UPDATE, SECRET).statusCode());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void answers429WhenBacklogIsFull() throws Exception {
+        backlog.set(2);
+        assertEquals(429, post(UPDATE, SECRET).statusCode());
+        assertTrue(received.isEmpty());
+
+        backlog.set(1);
+        assertEquals(200, post(UPDATE, SECRET).statusCode());
+        assertEquals(1, received.size());
+    }
+
+    private HttpResponse<Void> post(String body, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            request.header(WebhookReceiver.SECRET_HEADER, secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+}